@@ -0,0 +1,47 @@
+package de.thm.tlf.photoViewer.benchmarks;
+
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding a complete picture, per format and size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dprism.order=sw"})
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+    @Param({"png", "jpg", "gif"})
+    public String format;
+
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+
+    private Path dir;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void createImage() throws IOException {
+        String[] dimensions = size.split("x");
+        dir = Files.createTempDirectory("pv-decode");
+        file = TestImages.create(dir, format, Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteImage() throws IOException {
+        TestImages.delete(dir);
+    }
+
+    @Benchmark
+    public DecodeResult fullDecode() {
+        return ImageFileReader.decode(file);
+    }
+}
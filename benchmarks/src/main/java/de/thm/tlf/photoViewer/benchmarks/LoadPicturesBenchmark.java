@@ -0,0 +1,52 @@
+package de.thm.tlf.photoViewer.benchmarks;
+
+import de.thm.tlf.photoViewer.PictureHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput of PictureHandler.loadPictures, which only creates the picture handles
+ * and must not decode anything, over collections of different sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dprism.order=sw"})
+@State(Scope.Benchmark)
+public class LoadPicturesBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int pictureCount;
+
+    private Path dir;
+    private List<File> files;
+    private PictureHandler picHandler;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        dir = Files.createTempDirectory("pv-load");
+        System.setProperty("photoViewer.thumbnailCacheDir", dir.resolve("cache").toString());
+        Path source = TestImages.create(dir, "jpg", 64, 48);
+        files = TestImages.copies(dir, source, pictureCount).stream().map(Path::toFile).collect(Collectors.toList());
+        picHandler = PictureHandler.getInstance();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        picHandler.clear();
+        TestImages.delete(dir);
+    }
+
+    @Benchmark
+    public int loadPictures() {
+        picHandler.loadPictures(files);
+        return picHandler.getPictureCount();
+    }
+}
@@ -0,0 +1,70 @@
+package de.thm.tlf.photoViewer.benchmarks;
+
+import de.thm.tlf.photoViewer.NoPicturesLoadedException;
+import de.thm.tlf.photoViewer.PictureHandler;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of moving to the next or previous picture and getting its image,
+ * once with every picture in the image cache (hit) and once with caching disabled (miss).
+ * Prefetching is turned off so it doesn't skew either case.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dprism.order=sw",
+        "-DphotoViewer.prefetchAhead=0", "-DphotoViewer.prefetchBehind=0"})
+@State(Scope.Benchmark)
+public class NavigationBenchmark {
+    private static final int PICTURE_COUNT = 16;
+
+    @Param({"hit", "miss"})
+    public String cache;
+
+    private Path dir;
+    private PictureHandler picHandler;
+
+    @Setup(Level.Trial)
+    public void loadPictures() throws IOException, NoPicturesLoadedException {
+        dir = Files.createTempDirectory("pv-navigation");
+        System.setProperty("photoViewer.thumbnailCacheDir", dir.resolve("cache").toString());
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < PICTURE_COUNT; i++) {
+            Path picture = TestImages.create(Files.createDirectory(dir.resolve("p" + i)), "jpg", 1920, 1080);
+            files.add(picture.toFile());
+        }
+        picHandler = PictureHandler.getInstance();
+        picHandler.loadPictures(files);
+        picHandler.getImageCache().setMaxBytes("hit".equals(cache) ? Long.MAX_VALUE : 0);
+        // Decode everything once, so the hit case starts with a full cache
+        for (int i = 0; i < PICTURE_COUNT; i++) {
+            picHandler.getNextPicture().getImage();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deletePictures() throws IOException {
+        picHandler.clear();
+        TestImages.delete(dir);
+    }
+
+    @Benchmark
+    public Image nextPicture() throws NoPicturesLoadedException {
+        return picHandler.getNextPicture().getImage();
+    }
+
+    @Benchmark
+    public Image prevPicture() throws NoPicturesLoadedException {
+        return picHandler.getPrevPicture().getImage();
+    }
+}
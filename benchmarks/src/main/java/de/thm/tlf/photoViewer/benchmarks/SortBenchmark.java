@@ -0,0 +1,68 @@
+package de.thm.tlf.photoViewer.benchmarks;
+
+import de.thm.tlf.photoViewer.data.PictureCatalog;
+import de.thm.tlf.photoViewer.data.PictureFilter;
+import de.thm.tlf.photoViewer.data.PictureOrder;
+import de.thm.tlf.photoViewer.data.SortMode;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to sort and filter the entries of a PictureCatalog by each sort mode.
+ * The catalog is filled with random names, sizes and dates, no files are needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class SortBenchmark {
+    private static final String[] EXTENSIONS = {"jpg", "png", "gif"};
+
+    @Param({"100000"})
+    public int pictureCount;
+
+    @Param({"NAME", "CAPTURE_DATE", "FILE_SIZE", "DIMENSIONS"})
+    public SortMode sortMode;
+
+    private PictureOrder order;
+    private boolean descending = false;
+    private final PictureFilter pngOnly = new PictureFilter(Set.of("png"), 0, 0);
+
+    @Setup(Level.Trial)
+    public void fillCatalog() {
+        Random random = new Random(42);
+        PictureCatalog catalog = new PictureCatalog();
+        catalog.ensureCapacity(pictureCount);
+        for (int i = 0; i < pictureCount; i++) {
+            int index = catalog.add("/photos/" + random.nextInt(20) + "/IMG_" + random.nextInt(1_000_000)
+                    + "." + EXTENSIONS[random.nextInt(EXTENSIONS.length)], random.nextInt(10_000_000),
+                    random.nextLong() & 0xffffffffffL);
+            catalog.setMetadata(index, new PictureMetadata(random.nextInt(6000), random.nextInt(4000), 1,
+                    random.nextLong() & 0xffffffffffL));
+        }
+        order = new PictureOrder(catalog);
+    }
+
+    /**
+     * Alternates between ascending and descending, so every call really sorts
+     */
+    @Benchmark
+    public int sort() {
+        descending = !descending;
+        order.apply(sortMode, descending, PictureFilter.ALL);
+        return order.size();
+    }
+
+    @Benchmark
+    public int filterAndSort() {
+        descending = !descending;
+        order.apply(sortMode, descending, pngOnly);
+        return order.size();
+    }
+}
@@ -0,0 +1,91 @@
+package de.thm.tlf.photoViewer.benchmarks;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates the images the benchmarks run against, so no sample files have to be checked in.
+ * The images contain gradients, shapes and noise, which compress roughly like photos.
+ */
+final class TestImages {
+    /**
+     * Prevent creation of instances, only static methods
+     */
+    private TestImages() {}
+
+    /**
+     * Writes a generated image
+     * @param dir directory the image is written to
+     * @param format ImageIO format name, "png", "jpg" or "gif"
+     * @param width width of the image
+     * @param height height of the image
+     * @return path of the written image
+     * @throws IOException if the image could not be written
+     */
+    static Path create(Path dir, String format, int width, int height) throws IOException {
+        // JPEG and GIF can't store an alpha channel
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+        g.fillRect(0, 0, width, height);
+        Random random = new Random(width * 31L + height);
+        for (int i = 0; i < 200; i++) {
+            g.setColor(new Color(random.nextInt(0xffffff)));
+            g.fillOval(random.nextInt(width), random.nextInt(height), width / 10 + 1, height / 10 + 1);
+        }
+        g.dispose();
+        for (int i = 0; i < width * height / 20; i++) {
+            image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt(0xffffff));
+        }
+        Path file = dir.resolve(width + "x" + height + "." + format);
+        if (!ImageIO.write(image, format, file.toFile())) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return file;
+    }
+
+    /**
+     * Creates many copies of one image, for benchmarks that only depend on the number of files
+     * @param dir directory the copies are written to
+     * @param source image that is copied
+     * @param count amount of copies
+     * @return paths of all copies, in order
+     * @throws IOException if a copy could not be written
+     */
+    static List<Path> copies(Path dir, Path source, int count) throws IOException {
+        List<Path> files = new ArrayList<>(count);
+        String name = source.getFileName().toString();
+        String extension = name.substring(name.lastIndexOf('.'));
+        for (int i = 0; i < count; i++) {
+            Path copy = dir.resolve(String.format("picture-%06d%s", i, extension));
+            Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+            files.add(copy);
+        }
+        return files;
+    }
+
+    /**
+     * Deletes a directory with all its content
+     * @param dir directory to delete
+     * @throws IOException if a file could not be deleted
+     */
+    static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package de.thm.tlf.photoViewer.benchmarks;
+
+import de.thm.tlf.photoViewer.data.PicturePreview;
+import de.thm.tlf.photoViewer.data.ThumbnailCache;
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a preview: decoding straight to thumbnail size from the original,
+ * and reading an already generated thumbnail from the on-disk thumbnail cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dprism.order=sw"})
+@State(Scope.Benchmark)
+public class ThumbnailBenchmark {
+    @Param({"png", "jpg", "gif"})
+    public String format;
+
+    @Param({"1920x1080", "4000x3000"})
+    public String size;
+
+    private Path dir;
+    private Path file;
+    private ThumbnailCache thumbnailCache;
+
+    @Setup(Level.Trial)
+    public void createImage() throws Exception {
+        String[] dimensions = size.split("x");
+        dir = Files.createTempDirectory("pv-thumbnail");
+        file = TestImages.create(dir, format, Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        thumbnailCache = new ThumbnailCache(Files.createDirectory(dir.resolve("cache")), Long.MAX_VALUE);
+        // Fill the cache once, it is written in the background
+        new PicturePreview(file.toString(), thumbnailCache).getImage();
+        Path cacheDir = thumbnailCache.getCacheDir();
+        for (int i = 0; i < 100 && thumbnailCache.lookup(new PicturePreview(file.toString())) == null; i++) {
+            Thread.sleep(50);
+        }
+        if (thumbnailCache.lookup(new PicturePreview(file.toString())) == null) {
+            throw new IllegalStateException("Thumbnail has not been written to " + cacheDir);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteImage() throws IOException {
+        TestImages.delete(dir);
+    }
+
+    @Benchmark
+    public DecodeResult decodeToThumbnailSize() {
+        return ImageFileReader.decode(file, PicturePreview.THUMBNAIL_SIZE, PicturePreview.THUMBNAIL_SIZE);
+    }
+
+    @Benchmark
+    public Image thumbnailCacheHit() {
+        return new PicturePreview(file.toString(), thumbnailCache).getImage();
+    }
+}
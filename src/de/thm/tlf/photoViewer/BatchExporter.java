@@ -0,0 +1,264 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+import de.thm.tlf.photoViewer.io.ImageFileWriter;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Exports pictures into a folder, scaled down, re-encoded and written as the ExportSettings demand.
+ * Every picture is decoded in the export size (see ImageFileReader), encoded and written by one worker of a
+ * BatchProcessor, which bounds the pictures in flight. Decoding and encoding are both bound by the CPU, so one
+ * worker doing both keeps all cores busy without holding decoded pictures in a queue between two stages.
+ * The exported files are named like the source files with the extension of the format, a number is appended to
+ * names that are already taken. They are written under a temporary name and renamed once they are complete, so
+ * a failed or cancelled export leaves no broken files behind.
+ * Doesn't need JavaFX to be running, the ExportTask runs it for the viewer and PVCommandLine from the command line.
+ */
+public class BatchExporter {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final String TEMP_SUFFIX = ".part";
+
+    private final ExportSettings settings;
+    private final BatchProcessor processor = new BatchProcessor();
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param settings size, format and quality of the exported pictures
+     */
+    public BatchExporter(ExportSettings settings) {
+        this.settings = settings;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Exports the pictures and waits until all of them are written, failed or the export has been cancelled.
+     * If the calling thread is interrupted the export is cancelled and the interrupt flag is set again on return.
+     * @param files the pictures to export
+     * @param targetFolder folder the exported pictures are written to, created if it doesn't exist
+     * @param listener called on the calling thread whenever a picture has been exported or has failed, may be null
+     * @return outcome of the export
+     * @throws IOException if the target folder can't be created
+     */
+    public Result export(List<Path> files, Path targetFolder, ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(targetFolder);
+        List<Path> targets = assignTargets(files, targetFolder);
+        List<FileResult> failures = new ArrayList<>();
+        int[] exported = {0};
+        processor.run(files.size(), index -> exportFile(files.get(index), targets.get(index)),
+                (result, done, total) -> {
+                    if (result.isOk()) {
+                        exported[0]++;
+                    } else {
+                        failures.add(result);
+                    }
+                    if (listener != null) {
+                        listener.exported(result, done, total);
+                    }
+                });
+        return new Result(files.size(), exported[0], failures, exported[0] + failures.size() < files.size(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Stops the export, no more pictures are started and pictures that are being exported aren't written.
+     * Can be called from any thread.
+     */
+    public void cancel() {
+        processor.cancel();
+    }
+
+    public boolean isCancelled() {
+        return processor.isCancelled();
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Names the exported file of every picture, before any of them is written, so the names don't depend on the
+     * order the workers finish in
+     */
+    private List<Path> assignTargets(List<Path> files, Path targetFolder) {
+        String extension = "." + settings.getFormat().getExtension();
+        Set<String> taken = new HashSet<>();
+        List<Path> targets = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            String baseName = dot > 0 ? name.substring(0, dot) : name;
+            Path target = targetFolder.resolve(baseName + extension);
+            for (int n = 1; !taken.add(target.getFileName().toString().toLowerCase(Locale.ROOT))
+                    || (!settings.isOverwrite() && Files.exists(target)) || isSameFile(file, target); n++) {
+                target = targetFolder.resolve(baseName + "-" + n + extension);
+            }
+            targets.add(target);
+        }
+        return targets;
+    }
+
+    /**
+     * @return true if the target is the source itself, which is never overwritten
+     */
+    private static boolean isSameFile(Path source, Path target) {
+        return source.toAbsolutePath().normalize().equals(target.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Decodes, encodes and writes a single picture, runs on a worker
+     * @return outcome of the picture, null if it has been skipped as the export has been cancelled
+     */
+    private FileResult exportFile(Path source, Path target) {
+        if (processor.isCancelled()) {
+            return null;
+        }
+        DecodeResult decoded = ImageFileReader.decode(source, settings.getMaxWidth(), settings.getMaxHeight());
+        if (!decoded.isOk()) {
+            return new FileResult(source, null, decoded.getMessage() != null
+                    ? "Could not decode " + source + ": " + decoded.getMessage() : "Could not decode " + source);
+        }
+        if (processor.isCancelled()) {
+            return null;
+        }
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        try {
+            ImageFileWriter.write(decoded.getImage(), temp, settings.getFormat(), settings.getQuality());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new FileResult(source, target, null);
+        } catch (IOException e) {
+            return new FileResult(source, null, "Could not write " + target + ": " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Only left behind if the folder has become unwritable meanwhile
+            }
+        }
+    }
+
+    /**
+     * Receives the progress of an export
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param result outcome of the picture that has just been finished
+         * @param done amount of pictures that have been finished so far, including failed ones
+         * @param total amount of pictures that are exported
+         */
+        void exported(FileResult result, int done, int total);
+    }
+
+    /**
+     * Outcome of exporting a single picture
+     */
+    public static final class FileResult {
+        private final Path source;
+        private final Path target;
+        private final String error;
+
+        private FileResult(Path source, Path target, String error) {
+            this.source = source;
+            this.target = target;
+            this.error = error;
+        }
+
+        public boolean isOk() {
+            return target != null;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        /**
+         * @return the written file, null if the picture failed
+         */
+        public Path getTarget() {
+            return target;
+        }
+
+        /**
+         * @return why the picture failed, null if it has been exported
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Outcome of an export
+     */
+    public static final class Result {
+        private final int total;
+        private final int exported;
+        private final List<FileResult> failures;
+        private final boolean cancelled;
+        private final long elapsedNanos;
+
+        private Result(int total, int exported, List<FileResult> failures, boolean cancelled, long elapsedNanos) {
+            this.total = total;
+            this.exported = exported;
+            this.failures = List.copyOf(failures);
+            this.cancelled = cancelled;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return amount of pictures that should have been exported
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return amount of pictures that have been written
+         */
+        public int getExported() {
+            return exported;
+        }
+
+        /**
+         * @return the pictures that couldn't be read or written
+         */
+        public List<FileResult> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return true if the export has been cancelled before all pictures were finished
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,128 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import de.thm.tlf.photoViewer.metrics.ViewerMetrics;
+
+import java.util.concurrent.*;
+
+/**
+ * Runs a job for every item of a batch, e.g. every picture of a duplicate scan, on a worker pool sized to the number
+ * of cores ("photoViewer.batchThreads"), so the throughput grows with the cores as long as the disk keeps up.
+ * Items are handed to the workers only as fast as they finish them, at most "photoViewer.batchInFlight" at a time
+ * (default two per worker). Items waiting for a worker haven't been started, so no more decoded pictures are held
+ * in memory than there are workers, however large the batch is.
+ * The results are handed to a listener on the thread that runs the batch, in the order the items are finished.
+ * Doesn't need JavaFX to be running, it's used by the viewer's tasks and by PVCommandLine alike.
+ */
+public class BatchProcessor {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int THREADS = Math.max(1, Integer.getInteger("photoViewer.batchThreads",
+            Runtime.getRuntime().availableProcessors()));
+
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(THREADS,
+            new DaemonThreadFactory("batch-worker"));
+
+    static {
+        ViewerMetrics.getInstance().registerQueue("batch-worker", ((ThreadPoolExecutor) WORKERS).getQueue()::size);
+    }
+
+    private final int maxInFlight = Math.max(1, Integer.getInteger("photoViewer.batchInFlight", 2 * THREADS));
+    private volatile boolean cancelled = false;
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Processes the items and waits until all of them are finished or the batch has been cancelled.
+     * If the calling thread is interrupted the batch is cancelled and the interrupt flag is set again on return.
+     * Items that are being processed when the batch is cancelled are waited for, the job may check isCancelled
+     * to finish them early.
+     * @param total amount of items, they are processed in ascending order of their index
+     * @param job processes a single item on a worker, returns null for items that have been skipped
+     * @param listener called on the calling thread with the result of every item that hasn't been skipped
+     * @param <R> type of the results
+     * @return false if the batch has been cancelled, some of the items may not have been processed then
+     */
+    public <R> boolean run(int total, Job<R> job, Listener<R> listener) {
+        CompletionService<R> completionService = new ExecutorCompletionService<>(WORKERS);
+        int submitted = 0;
+        int finished = 0;
+        int reported = 0;
+        boolean interrupted = false;
+        while (finished < submitted || (submitted < total && !cancelled)) {
+            if (submitted < total && !cancelled && submitted - finished < maxInFlight) {
+                int index = submitted++;
+                completionService.submit(() -> job.process(index));
+                continue;
+            }
+            R result;
+            try {
+                result = completionService.take().get();
+            } catch (InterruptedException e) {
+                // The items that are being processed are still waited for, nothing runs on after returning
+                cancelled = true;
+                interrupted = true;
+                continue;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Batch job failed unexpectedly", e.getCause());
+            }
+            finished++;
+            if (result != null) {
+                listener.done(result, ++reported, total);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return !cancelled;
+    }
+
+    /**
+     * Stops the batch, no more items are started. Can be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return amount of workers items are processed by at the same time
+     */
+    public static int getThreadCount() {
+        return THREADS;
+    }
+
+    /**
+     * Processes a single item of a batch
+     * @param <R> type of the result
+     */
+    @FunctionalInterface
+    public interface Job<R> {
+        /**
+         * @param index index of the item
+         * @return the result, null if the item has been skipped
+         */
+        R process(int index);
+    }
+
+    /**
+     * Receives the results of a batch
+     * @param <R> type of the results
+     */
+    @FunctionalInterface
+    public interface Listener<R> {
+        /**
+         * @param result result of the item that has just been finished
+         * @param done amount of results that have been reported so far, including this one
+         * @param total amount of items of the batch
+         */
+        void done(R result, int done, int total);
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,134 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.data.DuplicateIndex;
+import de.thm.tlf.photoViewer.data.PerceptualHash;
+import de.thm.tlf.photoViewer.data.Picture;
+import de.thm.tlf.photoViewer.data.PicturePreview;
+import de.thm.tlf.photoViewer.data.ThumbnailCache;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import javafx.concurrent.Task;
+import javafx.scene.image.Image;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Task that finds duplicates and near duplicates among the pictures shown by the PictureHandler.
+ * The PerceptualHash of every picture is computed from its preview in parallel by a BatchProcessor.
+ * Previews are taken from the ThumbnailCache if possible, and they aren't put into the preview cache,
+ * so the previews of the preview strip stay cached.
+ * The hashes are collected in a DuplicateIndex as they are done, pictures whose hashes differ in at most
+ * "photoViewer.duplicateDistance" bits (default 10 of 64) are taken for duplicates.
+ * Pictures that can't be decoded are skipped. Cancelling the task stops all pending decodes.
+ */
+public class DuplicateScanTask extends Task<List<List<String>>> {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private final int maxDistance = Integer.getInteger("photoViewer.duplicateDistance", 10);
+
+    private final List<Picture> pictures;
+    private final ThumbnailCache thumbnailCache;
+    private final BatchProcessor processor = new BatchProcessor();
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param picHandler handler whose pictures are searched, pictures added after the task has been created
+     *                   aren't searched
+     */
+    public DuplicateScanTask(PictureHandler picHandler) {
+        this.pictures = picHandler.getPictures();
+        this.thumbnailCache = picHandler.getThumbnailCache();
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * @return paths of the pictures of every group of duplicates, the largest picture of the group first
+     */
+    @Override
+    protected List<List<String>> call() {
+        DuplicateIndex index = new DuplicateIndex(maxDistance);
+        boolean complete = processor.run(pictures.size(), this::hash, (result, done, total) -> {
+            if (result.decoded) {
+                index.add(result.id, result.hash);
+            }
+            updateProgress(done, total);
+        });
+        if (!complete) {
+            return List.of();
+        }
+
+        List<List<String>> groups = new ArrayList<>();
+        for (int[] group : index.getGroups()) {
+            groups.add(Arrays.stream(group)
+                    .mapToObj(pictures::get)
+                    .sorted(Comparator.comparingLong(DuplicateScanTask::pixels).thenComparingLong(Picture::getFileSize)
+                            .reversed())
+                    .map(Picture::getFileRef)
+                    .collect(Collectors.toList()));
+        }
+        return groups;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        processor.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Decodes the preview of a single picture and computes its hash, runs on a worker
+     * @return the hash, null if the picture has been skipped as the scan has been cancelled
+     */
+    private Hash hash(int id) {
+        if (processor.isCancelled()) {
+            return null;
+        }
+        Picture picture = pictures.get(id);
+        // No preview cache, the preview is dropped along with the handle
+        PicturePreview preview = new PicturePreview(picture.getFileRef(), picture.getFileSize(),
+                picture.getLastModified(), thumbnailCache, null);
+        Image image = preview.getImage();
+        if (image == null || image.getWidth() == 0 || image.getHeight() == 0) {
+            return new Hash(id, false, 0);
+        }
+        return new Hash(id, true, PerceptualHash.of(image));
+    }
+
+    /**
+     * @return amount of pixels of the stored picture, 0 if it isn't known
+     */
+    private static long pixels(Picture picture) {
+        PictureMetadata metadata = picture.getMetadata();
+        return metadata != null ? (long) metadata.getWidth() * metadata.getHeight() : 0;
+    }
+
+    /**
+     * Hash of a single picture
+     */
+    private static final class Hash {
+        private final int id;
+        private final boolean decoded;
+        private final long hash;
+
+        private Hash(int id, boolean decoded, long hash) {
+            this.id = id;
+            this.decoded = decoded;
+            this.hash = hash;
+        }
+    }
+    //------ End Methods ------//
+}
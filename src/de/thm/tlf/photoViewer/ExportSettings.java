@@ -0,0 +1,78 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.io.ImageFileWriter;
+
+/**
+ * How the BatchExporter writes pictures: the size they are scaled down to, the format and quality
+ * they are encoded in and whether existing files may be overwritten. Immutable.
+ */
+public final class ExportSettings {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private final int maxWidth;
+    private final int maxHeight;
+    private final ImageFileWriter.Format format;
+    private final float quality;
+    private final boolean overwrite;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param maxWidth maximum width of the exported pictures, 0 for no limit
+     * @param maxHeight maximum height of the exported pictures, 0 for no limit
+     * @param format format the pictures are encoded in
+     * @param quality between 0 and 1, see ImageFileWriter.write
+     * @param overwrite true to replace existing files, false to give the exported picture another name
+     */
+    public ExportSettings(int maxWidth, int maxHeight, ImageFileWriter.Format format, float quality,
+                          boolean overwrite) {
+        if (maxWidth < 0 || maxHeight < 0) {
+            throw new IllegalArgumentException("The size must not be negative");
+        }
+        if (!(quality >= 0 && quality <= 1)) {
+            throw new IllegalArgumentException("The quality must be between 0 and 1");
+        }
+        if (format == null) {
+            throw new IllegalArgumentException("A format is needed");
+        }
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.format = format;
+        this.quality = quality;
+        this.overwrite = overwrite;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public ImageFileWriter.Format getFormat() {
+        return format;
+    }
+
+    public float getQuality() {
+        return quality;
+    }
+
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
+    @Override
+    public String toString() {
+        return format + " " + (maxWidth > 0 ? maxWidth : "any") + "x" + (maxHeight > 0 ? maxHeight : "any")
+                + " quality " + Math.round(quality * 100);
+    }
+    //------ End Methods ------//
+}
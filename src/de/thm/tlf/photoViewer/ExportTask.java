@@ -0,0 +1,51 @@
+package de.thm.tlf.photoViewer;
+
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Task that exports pictures off the JavaFX application thread, see BatchExporter.
+ * Cancelling the task cancels the export, pictures that are being written when it is cancelled are dropped.
+ */
+public class ExportTask extends Task<BatchExporter.Result> {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private final List<Path> files;
+    private final Path targetFolder;
+    private final BatchExporter exporter;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param files the pictures to export
+     * @param targetFolder folder the exported pictures are written to
+     * @param settings size, format and quality of the exported pictures
+     */
+    public ExportTask(List<Path> files, Path targetFolder, ExportSettings settings) {
+        this.files = List.copyOf(files);
+        this.targetFolder = targetFolder;
+        this.exporter = new BatchExporter(settings);
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    @Override
+    protected BatchExporter.Result call() throws Exception {
+        updateProgress(0, files.size());
+        return exporter.export(files, targetFolder, (result, done, total) -> updateProgress(done, total));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        exporter.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,134 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import javafx.application.Platform;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a folder for created, deleted and modified files using the WatchService.
+ * Events are collected until the folder has been quiet for a short time, so a file that
+ * is still being written is only reported once. The changed paths are handed to the
+ * listener on the JavaFX application thread, it has to check the current state of each file itself.
+ * If events have been lost, the folder itself is reported and the listener has to rescan it.
+ */
+public class FolderWatcher implements Closeable {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final long QUIET_PERIOD_MS = 300;
+
+    private final Path folder;
+    private final Consumer<Set<Path>> onChanges;
+    private final WatchService watchService;
+    private final Thread watchThread;
+
+    private volatile boolean closed = false;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * Registers the folder, call start to begin delivering changes
+     * @param folder the folder that will be watched
+     * @param onChanges called on the JavaFX application thread with the paths of all changed files
+     * @throws IOException if the folder can't be watched
+     */
+    public FolderWatcher(Path folder, Consumer<Set<Path>> onChanges) throws IOException {
+        this.folder = folder;
+        this.onChanges = onChanges;
+        this.watchService = folder.getFileSystem().newWatchService();
+        folder.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        this.watchThread = new DaemonThreadFactory("folder-watcher").newThread(this::watch);
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Starts delivering changes in the background
+     */
+    public void start() {
+        watchThread.start();
+    }
+
+    /**
+     * @return the watched folder
+     */
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * Stops watching, changes that have not been delivered yet are dropped
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // Nothing left to clean up
+        }
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Waits for events and delivers them in batches once the folder is quiet
+     */
+    private void watch() {
+        try {
+            while (!closed) {
+                Set<Path> changed = new LinkedHashSet<>();
+                WatchKey key = watchService.take();
+                // Keep collecting until no further event arrives within the quiet period
+                while (key != null) {
+                    collect(key, changed);
+                    key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                }
+                if (!changed.isEmpty() && !closed) {
+                    Platform.runLater(() -> {
+                        if (!closed) {
+                            onChanges.accept(changed);
+                        }
+                    });
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Watcher has been closed
+        }
+    }
+
+    /**
+     * Adds the paths of all events of the key to the set and re-arms the key
+     */
+    private void collect(WatchKey key, Set<Path> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were lost, the folder itself is reported so the listener rescans it
+                changed.add(folder);
+            } else {
+                changed.add(folder.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,263 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import de.thm.tlf.photoViewer.data.Picture;
+import de.thm.tlf.photoViewer.io.GifDecoder;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+import de.thm.tlf.photoViewer.metrics.ViewerMetrics;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.scene.image.Image;
+import javafx.util.Duration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+/**
+ * Plays animated GIFs.
+ * Frames are decoded in the background by a GifDecoder, one at a time and only as far ahead as the frame window
+ * allows ("photoViewer.gifFrameWindow", default 8 frames), so a long animation never occupies more memory than
+ * a few of its frames. Animations that fit into the window completely are kept after their first loop and
+ * replayed without decoding again.
+ * While paused (e.g. because the window is minimized) no frames are decoded and the file is closed.
+ * The loopRunning property is true while a loop of the animation is shown and turns false whenever the last
+ * frame has been shown for its delay, the slide show waits for this so every animation is shown to its end.
+ * All methods have to be called on the JavaFX application thread.
+ */
+public class GifPlayer {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final ExecutorService FRAME_DECODER = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("gif-decoder"));
+
+    static {
+        ViewerMetrics.getInstance().registerQueue("gif-decoder", ((ThreadPoolExecutor) FRAME_DECODER).getQueue()::size);
+    }
+
+    private final int frameWindow = Math.max(2, Integer.getInteger("photoViewer.gifFrameWindow", 8));
+    private final Consumer<Image> onFrame;
+
+    private final PauseTransition frameTimer = new PauseTransition();
+    private final ReadOnlyBooleanWrapper loopRunning = new ReadOnlyBooleanWrapper(false);
+
+    private GifDecoder decoder;
+    // Incremented for every new picture, so frames of the previous one are dropped
+    private long generation = 0;
+    private boolean paused = false;
+    private boolean decoding = false;
+    private boolean waitingForFrame = false;
+    // Decoded frames that haven't been shown yet
+    private final ArrayDeque<GifDecoder.Frame> window = new ArrayDeque<>();
+    // All frames of the first loop, as long as they fit into the window, null once they don't
+    private List<GifDecoder.Frame> allFrames = new ArrayList<>();
+    private boolean replaying = false;
+    private int replayPosition = 0;
+    private int shownFrames = 0;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param onFrame called with every frame that is due to be shown
+     */
+    public GifPlayer(Consumer<Image> onFrame) {
+        this.onFrame = onFrame;
+        frameTimer.setOnFinished(e -> showNextFrame());
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Plays the picture if it's an animated GIF, stops the animation of the previous picture in any case
+     * @param picture the displayed picture, null if none
+     * @param firstFrame the decoded picture that is shown, the frames are composed in its size
+     */
+    public void play(Picture picture, Image firstFrame) {
+        stop();
+        if (picture == null || firstFrame == null || !ImageFileReader.isGif(Paths.get(picture.getFileRef()))) {
+            return;
+        }
+        long requestGeneration = generation;
+        Path file = Paths.get(picture.getFileRef());
+        double maxWidth = firstFrame.getWidth();
+        double maxHeight = firstFrame.getHeight();
+        FRAME_DECODER.execute(() -> {
+            boolean animated = GifDecoder.isAnimated(file);
+            Platform.runLater(() -> {
+                if (animated && requestGeneration == generation) {
+                    decoder = new GifDecoder(file, maxWidth, maxHeight);
+                    loopRunning.set(true);
+                    waitingForFrame = true;
+                    requestFrames();
+                }
+            });
+        });
+    }
+
+    /**
+     * Stops the animation and releases its frames and file
+     */
+    public void stop() {
+        generation++;
+        frameTimer.stop();
+        window.clear();
+        allFrames = new ArrayList<>();
+        replaying = false;
+        replayPosition = 0;
+        shownFrames = 0;
+        waitingForFrame = false;
+        // A decode that is still running is ignored, the executor runs the next one after it
+        decoding = false;
+        loopRunning.set(false);
+        if (decoder != null) {
+            GifDecoder closed = decoder;
+            decoder = null;
+            FRAME_DECODER.execute(closed::close);
+        }
+    }
+
+    /**
+     * Pauses or resumes the animation, while paused neither frames are shown nor decoded
+     * @param paused true to pause
+     */
+    public void setPaused(boolean paused) {
+        if (this.paused == paused) {
+            return;
+        }
+        this.paused = paused;
+        if (decoder == null) {
+            return;
+        }
+        if (paused) {
+            frameTimer.pause();
+            GifDecoder suspended = decoder;
+            FRAME_DECODER.execute(suspended::suspend);
+        } else {
+            if (!waitingForFrame) {
+                frameTimer.play();
+            }
+            requestFrames();
+        }
+    }
+
+    /**
+     * @return property that is true while a loop of an animation is being shown, false at its end
+     */
+    public ReadOnlyBooleanProperty loopRunningProperty() {
+        return loopRunning.getReadOnlyProperty();
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Decodes the next frame in the background if the window has room for it
+     */
+    private void requestFrames() {
+        if (decoder == null || paused || decoding || replaying || window.size() >= frameWindow) {
+            return;
+        }
+        decoding = true;
+        GifDecoder requestDecoder = decoder;
+        long requestGeneration = generation;
+        FRAME_DECODER.execute(() -> {
+            GifDecoder.Frame frame;
+            try {
+                frame = requestDecoder.next();
+            } catch (IOException e) {
+                frame = null;
+            }
+            GifDecoder.Frame decoded = frame;
+            Platform.runLater(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                decoding = false;
+                if (decoded == null) {
+                    // The animation can't be continued, the last frame stays
+                    stop();
+                    return;
+                }
+                addFrame(decoded);
+                requestFrames();
+            });
+        });
+    }
+
+    /**
+     * Puts a decoded frame into the window, stops decoding once the whole animation fits into it
+     */
+    private void addFrame(GifDecoder.Frame frame) {
+        if (allFrames != null) {
+            if (frame.getIndex() == 0 && !allFrames.isEmpty()) {
+                // The first loop is complete and all of its frames are known, no need to decode them again
+                replaying = true;
+                GifDecoder released = decoder;
+                FRAME_DECODER.execute(released::close);
+            } else if (allFrames.size() < frameWindow) {
+                allFrames.add(frame);
+            } else {
+                allFrames = null;
+            }
+        }
+        if (!replaying) {
+            window.add(frame);
+        }
+        if (waitingForFrame && !paused) {
+            waitingForFrame = false;
+            showNextFrame();
+        }
+    }
+
+    /**
+     * Shows the next frame and waits for its delay, or waits for the decoder if it isn't ready yet
+     */
+    private void showNextFrame() {
+        if (paused) {
+            return;
+        }
+        GifDecoder.Frame frame;
+        if (replaying && window.isEmpty()) {
+            frame = allFrames.get(replayPosition);
+            replayPosition = (replayPosition + 1) % allFrames.size();
+        } else {
+            frame = window.poll();
+        }
+        if (frame == null) {
+            // Decoding is slower than the animation, the current frame is shown longer
+            waitingForFrame = true;
+            requestFrames();
+            return;
+        }
+        if (frame.getIndex() == 0 && shownFrames > 0) {
+            // A loop has ended, which allows the slide show to move on to another picture
+            long currentGeneration = generation;
+            loopRunning.set(false);
+            if (currentGeneration != generation) {
+                return;
+            }
+            loopRunning.set(true);
+        }
+        shownFrames++;
+        onFrame.accept(frame.getImage());
+        frameTimer.setDuration(Duration.millis(frame.getDelayMillis()));
+        frameTimer.playFromStart();
+        requestFrames();
+    }
+    //------ End Methods ------//
+}
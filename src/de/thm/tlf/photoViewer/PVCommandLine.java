@@ -0,0 +1,479 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.data.LibraryIndex;
+import de.thm.tlf.photoViewer.data.PicturePreview;
+import de.thm.tlf.photoViewer.data.ThumbnailCache;
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+import de.thm.tlf.photoViewer.io.ImageFileWriter;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import de.thm.tlf.photoViewer.metrics.ViewerMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Entrypoint for using the viewer's image engine from the command line, e.g. on servers without a display.
+ * It's a main class of its own because the Java launcher starts the JavaFX toolkit before calling the main
+ * method of an Application like PVController. Here JavaFX isn't started, images are only decoded and encoded,
+ * and commands that don't decode don't even load the JavaFX classes. The same caches as the viewer's are used, so their locations are set by the
+ * same system properties (see ThumbnailCache and LibraryIndex).
+ * <pre>
+ * photoviewer-cli thumbnails &lt;files or folders&gt;...   creates the missing previews in the thumbnail cache
+ * photoviewer-cli index &lt;files or folders&gt;...        reads the metadata of new and changed files into the index
+ * photoviewer-cli check &lt;files or folders&gt;...        decodes every picture and lists the broken ones
+ * photoviewer-cli export --output &lt;folder&gt; [--width &lt;px&gt;] [--height &lt;px&gt;] [--format jpeg|png]
+ *                        [--quality 0-100] [--overwrite] &lt;files or folders&gt;...
+ * </pre>
+ * Folders are searched for supported pictures recursively, the pictures are processed in parallel by a
+ * BatchProcessor. Ctrl+C cancels a running command, files that are being written are dropped.
+ * The exit code is 0 on success, 1 if some pictures failed, 2 for invalid arguments and 130 if the command
+ * has been cancelled.
+ */
+public final class PVCommandLine {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILURES = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_CANCELLED = 130;
+    private static final long PROGRESS_INTERVAL_MS = 1000;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: photoviewer-cli <command> [options] <files or folders>...",
+            "",
+            "Commands:",
+            "  thumbnails  Creates the missing previews in the thumbnail cache",
+            "  index       Reads the metadata of new and changed pictures into the library index",
+            "  check       Decodes every picture and lists the ones that are broken",
+            "  export      Writes resized copies of the pictures to a folder",
+            "",
+            "Options of export:",
+            "  --output <folder>   folder the pictures are written to, required",
+            "  --width <pixels>    maximum width, 0 for the original width (default)",
+            "  --height <pixels>   maximum height, 0 for the original height (default)",
+            "  --format jpeg|png   format the pictures are written in (default jpeg)",
+            "  --quality <0-100>   JPEG quality, PNG compression speed (default 85)",
+            "  --overwrite         replace existing files instead of numbering the new ones",
+            "",
+            "Folders are searched for pictures recursively.",
+            "System properties: photoViewer.batchThreads (workers, default: cores),",
+            "photoViewer.batchInFlight (pictures handed to the workers at once, default: twice the workers),",
+            "photoViewer.thumbnailCacheDir, photoViewer.libraryIndexDir (see the viewer)");
+
+    /**
+     * Prevent creation of instances, only static methods
+     */
+    private PVCommandLine() {}
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Entrypoint to the command line tool
+     * @param args command, options and files as shown by the usage
+     */
+    public static void main(String[] args) {
+        // Decoding and encoding use AWT, which must not look for a display, and JavaFX images,
+        // which must not look for a graphics card
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        if (System.getProperty("prism.order") == null) {
+            System.setProperty("prism.order", "sw");
+        }
+        int exitCode = run(args, System.out, System.err);
+        if (Boolean.getBoolean("photoViewer.logMetrics")) {
+            ViewerMetrics.getInstance().logSummary();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Runs a command
+     * @param args command, options and files as shown by the usage
+     * @param out stream the results are written to
+     * @param err stream progress and errors are written to
+     * @return the exit code
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+            out.println(USAGE);
+            return args.length == 0 ? EXIT_USAGE : EXIT_OK;
+        }
+        try {
+            switch (args[0]) {
+                case "thumbnails":
+                    return thumbnails(Arguments.parse(args, 1, Set.of(), Set.of()), out, err);
+                case "index":
+                    return index(Arguments.parse(args, 1, Set.of(), Set.of()), out, err);
+                case "check":
+                    return check(Arguments.parse(args, 1, Set.of(), Set.of()), out, err);
+                case "export":
+                    return export(Arguments.parse(args, 1, Set.of("--output", "--width", "--height", "--format",
+                            "--quality"), Set.of("--overwrite")), out, err);
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + args[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println();
+            err.println(USAGE);
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return EXIT_FAILURES;
+        }
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Decodes the previews of all pictures that aren't in the thumbnail cache yet and stores them
+     */
+    private static int thumbnails(Arguments arguments, PrintStream out, PrintStream err) throws IOException {
+        List<Path> files = collectPictures(arguments.getFiles());
+        ThumbnailCache thumbnailCache = ThumbnailCache.createDefault();
+        BatchProcessor processor = new BatchProcessor();
+        return cancellable(processor::cancel, () -> {
+            BatchOutcome outcome = processFiles(processor, files, file -> {
+                PicturePreview preview = new PicturePreview(file.toString(), thumbnailCache);
+                preview.getImage();
+                DecodeResult failure = preview.getFailure();
+                return failure != null ? describe(file, failure) : null;
+            }, out, err);
+            try {
+                thumbnailCache.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.printf(Locale.ROOT, "%d previews: %d cached already, %d created, %d failed, %.1f s%n",
+                    outcome.processed, thumbnailCache.getHits(), thumbnailCache.getMisses() - outcome.problems,
+                    outcome.problems, outcome.seconds());
+            return outcome.exitCode();
+        });
+    }
+
+    /**
+     * Brings the library index up to date with the metadata of all pictures
+     */
+    private static int index(Arguments arguments, PrintStream out, PrintStream err) throws IOException {
+        List<Path> files = collectPictures(arguments.getFiles());
+        LibraryIndex.Session session = LibraryIndex.createDefault().openSession();
+        BatchProcessor processor = new BatchProcessor();
+        return cancellable(processor::cancel, () -> {
+            BatchOutcome outcome = processFiles(processor, files, file -> {
+                File plain = file.toFile();
+                PictureMetadata metadata = session.metadataOf(file, plain.length(), plain.lastModified());
+                return metadata == PictureMetadata.UNKNOWN ? "UNREADABLE " + file + ": no readable header" : null;
+            }, out, err);
+            // Even a cancelled run keeps what it has read
+            int folders = session.commit();
+            out.printf(Locale.ROOT, "%d pictures: %d indexed already, %d read, %d unreadable, %d folders written, "
+                            + "%.1f s%n", outcome.processed, session.getIndexedCount(),
+                    session.getReadCount() - outcome.problems, outcome.problems, folders, outcome.seconds());
+            return outcome.exitCode();
+        });
+    }
+
+    /**
+     * Decodes every picture and lists the ones that can't be read or decoded
+     */
+    private static int check(Arguments arguments, PrintStream out, PrintStream err) throws IOException {
+        List<Path> files = collectPictures(arguments.getFiles());
+        BatchProcessor processor = new BatchProcessor();
+        return cancellable(processor::cancel, () -> {
+            BatchOutcome outcome = processFiles(processor, files, file -> {
+                // Decoding reads the whole file, the small size only keeps the decoded pictures small
+                DecodeResult result = ImageFileReader.decode(file, PicturePreview.THUMBNAIL_SIZE,
+                        PicturePreview.THUMBNAIL_SIZE);
+                return result.isOk() ? null : describe(file, result);
+            }, out, err);
+            out.printf(Locale.ROOT, "%d pictures checked, %d broken, %.1f s%n",
+                    outcome.processed, outcome.problems, outcome.seconds());
+            return outcome.exitCode();
+        });
+    }
+
+    /**
+     * @return line describing why a file couldn't be decoded
+     */
+    private static String describe(Path file, DecodeResult failure) {
+        // The message of a failed decode names the file in most but not all cases
+        String message = failure.getMessage();
+        return failure.getStatus() + " " + (message != null && message.contains(file.toString())
+                ? message : file + (message != null ? ": " + message : ""));
+    }
+
+    /**
+     * Runs a check on every file, the problems are printed as they are found
+     * @param processor runs the checks, cancelling it stops them
+     * @param files the files to check
+     * @param check returns the problem of a file, null if there is none, runs on the workers
+     * @param out stream the problems are written to
+     * @param err stream the progress is written to
+     * @return amount of files processed and problems found
+     */
+    private static BatchOutcome processFiles(BatchProcessor processor, List<Path> files,
+                                             Function<Path, String> check, PrintStream out, PrintStream err) {
+        long start = System.nanoTime();
+        BatchOutcome outcome = new BatchOutcome();
+        ProgressReporter progress = new ProgressReporter(err);
+        outcome.complete = processor.run(files.size(), index -> {
+            if (processor.isCancelled()) {
+                return null;
+            }
+            String problem = check.apply(files.get(index));
+            return problem != null ? problem : "";
+        }, (problem, done, total) -> {
+            outcome.processed++;
+            if (!problem.isEmpty()) {
+                outcome.problems++;
+                out.println(problem);
+            }
+            progress.report(done, total);
+        });
+        outcome.elapsedNanos = System.nanoTime() - start;
+        return outcome;
+    }
+
+    /**
+     * Runs a command, Ctrl+C calls cancel and holds the exit of the JVM back until the command has returned,
+     * so it can clean up (e.g. remove files that are being written) and report what it has done
+     * @param cancel cancels the command
+     * @param command the command
+     * @return the result of the command
+     */
+    private static <T> T cancellable(Runnable cancel, Command<T> command) throws IOException {
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread cancelHook = new Thread(() -> {
+            cancel.run();
+            try {
+                finished.await();
+            } catch (InterruptedException ignored) {
+                // The JVM exits anyway
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(cancelHook);
+        try {
+            return command.run();
+        } finally {
+            finished.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(cancelHook);
+            } catch (IllegalStateException ignored) {
+                // Shutting down already, the hook is running
+            }
+        }
+    }
+
+    /**
+     * Exports the pictures, see BatchExporter
+     */
+    private static int export(Arguments arguments, PrintStream out, PrintStream err) throws IOException {
+        String output = arguments.option("--output", null);
+        if (output == null) {
+            throw new IllegalArgumentException("--output is required");
+        }
+        int quality = arguments.intOption("--quality", 85);
+        if (quality < 0 || quality > 100) {
+            throw new IllegalArgumentException("--quality must be between 0 and 100");
+        }
+        String formatName = arguments.option("--format", "jpeg").toUpperCase(Locale.ROOT);
+        ImageFileWriter.Format format;
+        try {
+            format = ImageFileWriter.Format.valueOf(formatName.equals("JPG") ? "JPEG" : formatName);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown format: " + arguments.option("--format", null));
+        }
+        ExportSettings settings = new ExportSettings(arguments.intOption("--width", 0),
+                arguments.intOption("--height", 0), format, quality / 100f, arguments.flag("--overwrite"));
+        List<Path> files = collectPictures(arguments.getFiles());
+
+        BatchExporter exporter = new BatchExporter(settings);
+        err.println("Exporting " + files.size() + " pictures as " + settings + " with "
+                + BatchProcessor.getThreadCount() + " threads");
+        ProgressReporter progress = new ProgressReporter(err);
+        BatchExporter.Result result = cancellable(exporter::cancel,
+                () -> exporter.export(files, Paths.get(output), (fileResult, done, total) -> {
+                    if (!fileResult.isOk()) {
+                        out.println(fileResult.getError());
+                    }
+                    progress.report(done, total);
+                }));
+        double seconds = result.getElapsedNanos() / 1e9;
+        out.printf(Locale.ROOT, "%d of %d pictures exported, %d failed, %.1f s (%.1f pictures/s)%n",
+                result.getExported(), result.getTotal(), result.getFailures().size(), seconds,
+                seconds > 0 ? result.getExported() / seconds : 0);
+        if (result.isCancelled()) {
+            return EXIT_CANCELLED;
+        }
+        return result.getFailures().isEmpty() ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    /**
+     * Replaces folders by the supported pictures they contain, recursively and sorted by path
+     * @param arguments paths of files and folders
+     * @return the pictures in the order of the arguments
+     * @throws IllegalArgumentException if a path doesn't exist or no picture has been found
+     * @throws IOException if a folder can't be read
+     */
+    static List<Path> collectPictures(List<String> arguments) throws IOException {
+        List<Path> pictures = new ArrayList<>();
+        for (String argument : arguments) {
+            Path path = Paths.get(argument);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    pictures.addAll(files.filter(f -> Files.isRegularFile(f) && ImageFileReader.isSupported(f))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else if (Files.exists(path)) {
+                pictures.add(path);
+            } else {
+                throw new IllegalArgumentException("No such file or folder: " + argument);
+            }
+        }
+        if (pictures.isEmpty()) {
+            throw new IllegalArgumentException("No pictures found");
+        }
+        return pictures;
+    }
+
+    /**
+     * A command that can be cancelled, see cancellable
+     */
+    @FunctionalInterface
+    private interface Command<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * What a check of files has found, see processFiles
+     */
+    private static final class BatchOutcome {
+        private int processed = 0;
+        private int problems = 0;
+        private boolean complete = false;
+        private long elapsedNanos = 0;
+
+        private double seconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        private int exitCode() {
+            if (!complete) {
+                return EXIT_CANCELLED;
+            }
+            return problems == 0 ? EXIT_OK : EXIT_FAILURES;
+        }
+    }
+
+    /**
+     * Writes the progress of a batch at most once per PROGRESS_INTERVAL_MS
+     */
+    private static final class ProgressReporter {
+        private final PrintStream err;
+        private long lastReport = System.currentTimeMillis();
+
+        private ProgressReporter(PrintStream err) {
+            this.err = err;
+        }
+
+        private void report(int done, int total) {
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= PROGRESS_INTERVAL_MS) {
+                lastReport = now;
+                err.println(done + " / " + total);
+            }
+        }
+    }
+
+    /**
+     * Options and files of a command
+     */
+    static final class Arguments {
+        private final Map<String, String> options = new HashMap<>();
+        private final List<String> files = new ArrayList<>();
+
+        private Arguments() {}
+
+        /**
+         * @param args all arguments
+         * @param from index of the first argument after the command
+         * @param valueOptions options that are followed by a value
+         * @param flagOptions options without a value
+         * @return the parsed arguments
+         * @throws IllegalArgumentException if an option is unknown or lacks its value
+         */
+        static Arguments parse(String[] args, int from, Set<String> valueOptions, Set<String> flagOptions) {
+            Arguments arguments = new Arguments();
+            for (int i = from; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--")) {
+                    arguments.files.addAll(List.of(args).subList(i + 1, args.length));
+                    break;
+                } else if (valueOptions.contains(arg)) {
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException(arg + " needs a value");
+                    }
+                    arguments.options.put(arg, args[++i]);
+                } else if (flagOptions.contains(arg)) {
+                    arguments.options.put(arg, "true");
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    arguments.files.add(arg);
+                }
+            }
+            return arguments;
+        }
+
+        String option(String name, String fallback) {
+            return options.getOrDefault(name, fallback);
+        }
+
+        int intOption(String name, int fallback) {
+            String value = options.get(name);
+            if (value == null) {
+                return fallback;
+            }
+            try {
+                int number = Integer.parseInt(value);
+                if (number < 0) {
+                    throw new IllegalArgumentException(name + " must not be negative");
+                }
+                return number;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " needs a number: " + value);
+            }
+        }
+
+        boolean flag(String name) {
+            return options.containsKey(name);
+        }
+
+        List<String> getFiles() {
+            return files;
+        }
+    }
+    //------ End Methods ------//
+}
@@ -1,14 +1,27 @@
 package de.thm.tlf.photoViewer;
 
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import de.thm.tlf.photoViewer.data.Picture;
+import de.thm.tlf.photoViewer.data.PictureCatalog;
+import de.thm.tlf.photoViewer.data.PictureFilter;
 import de.thm.tlf.photoViewer.data.PicturePreview;
+import de.thm.tlf.photoViewer.data.SortMode;
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+import de.thm.tlf.photoViewer.io.ImageFileWriter;
+import de.thm.tlf.photoViewer.io.MetadataReader;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import de.thm.tlf.photoViewer.metrics.ViewerMetrics;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.concurrent.Task;
+import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
@@ -21,17 +34,36 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
+import javafx.stage.Screen;
 import javafx.stage.Stage;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Controller Class for Image-viewer.
  * Holds GUI elements as well as the handling of any user input.
+ * Runtime metrics are published through JMX (see ViewerMetrics) and written to the log on exit
+ * if the system property "photoViewer.logMetrics" is set to true.
+ * The window is shown before anything it doesn't need for its first frame is loaded, with
+ * "photoViewer.exitAfterFirstFrame" set to true the viewer exits again right after that.
  *
  * @author Tim Lukas Förster
  * @version 1.0
@@ -49,23 +81,34 @@ public class PVController extends Application {
     // CENTER //
     private final ScrollPane currentViewSP = new ScrollPane();
     private final ImageView centerImageView = new ImageView();
+    private final TileLayer tileLayer = new TileLayer();
 
     // TOP //
     private final VBox menu = new VBox();
     private final MenuBar menuBar = new MenuBar();
     private final Menu fileMenu = new Menu("File");
+    private final Menu viewMenu = new Menu("View");
     private final Menu aboutMenu = new Menu("About");
     private final MenuItem menuItemOpenFiles = new MenuItem("Open");
+    private final MenuItem menuItemOpenFolder = new MenuItem("Open Folder");
+    private final MenuItem menuItemExport = new MenuItem("Export...");
     private final MenuItem menuItemClearViewer = new Menu("Close all pictures");
     private final MenuItem menuItemStartSlideShow = new MenuItem("Start Slide Show");
     private final MenuItem menuItemExitViewer = new Menu("Exit");
     private final MenuItem menuItemShowInfo = new Menu("Information");
+    private final Menu menuSortBy = new Menu("Sort by");
+    private final ToggleGroup sortModeGroup = new ToggleGroup();
+    private final CheckMenuItem menuItemSortDescending = new CheckMenuItem("Descending");
+    private final Menu menuFormats = new Menu("Formats");
+    private final MenuItem menuItemFilterByDate = new MenuItem("Filter by date...");
+    private final MenuItem menuItemShowAll = new MenuItem("Show all pictures");
+    private final MenuItem menuItemHideDuplicates = new MenuItem("Hide duplicates...");
 
     // BOTTOM //
     private final VBox bottomPanel = new VBox();
 
     //private final HBox selectionPane = new HBox();
-    private final ListView<ImageView> previewPane = new ListView<>();
+    private final ListView<PicturePreview> previewPane = new ListView<>();
     private final VBox pictureSelector = new VBox();
 
     private final BorderPane bottomLowerPanel = new BorderPane();
@@ -76,6 +119,7 @@ public class PVController extends Application {
     private final Button openFilesButton = new Button("Open Pictures");
     private Slider zoomSlider;
     private Slider slideShowSpeedSlider;
+    private final ProgressBar loadProgressBar = new ProgressBar();
 
     private final Button prevPicBtn = new Button("<-");
     private final Button nextPicBtn = new Button("->");
@@ -87,11 +131,24 @@ public class PVController extends Application {
     private PictureHandler picHandler;
 
     // Etc. //
-    private Thread slideShowThread;
+    private PictureLoadTask pictureLoadTask;
+    private DuplicateScanTask duplicateScanTask;
+    private ExportTask exportTask;
+    private Path lastExportFolder;
+    private FolderWatcher folderWatcher;
+    private final Set<Path> pendingFolderChanges = new LinkedHashSet<>();
+    private SlideShow slideShow;
+    private GifPlayer gifPlayer;
+    private ZoomController zoomController;
+    // Incremented on the UI thread, read by the progressive decoder to skip pictures the user has moved on from
+    private volatile long displayRequest = 0;
+    private boolean displayingFinalLevel = true;
+    // Time of the navigation key press that is waiting to be displayed, 0 if none
+    private long keyPressedAt = 0;
+    private final ExecutorService progressiveDecoder = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("progressive-decoder"));
     private boolean bIsFullScreen = false;
-    private boolean bSlideShowActive = false;
     private final DoubleProperty slideShowSpeed = new SimpleDoubleProperty(4);
-    private final DoubleProperty zoomProperty = new SimpleDoubleProperty(200);
 
     // Key Combinations & Shortcuts //
     private final KeyCombination keyCrtlQ = new KeyCodeCombination(KeyCode.Q, KeyCombination.CONTROL_ANY);
@@ -118,6 +175,18 @@ public class PVController extends Application {
     @Override
     public void start(Stage primaryStage) {
         picHandler = PictureHandler.getInstance();
+        // Loaders add pictures on their own threads, the preview pane has to learn about it on the UI thread
+        picHandler.setPreviewExecutor(Platform::runLater);
+        // Pictures are decoded up to screen size at most, zooming in further loads tiles of the original
+        Screen screen = Screen.getPrimary();
+        picHandler.setMaxDecodeSize(screen.getBounds().getWidth() * screen.getOutputScaleX(),
+                screen.getBounds().getHeight() * screen.getOutputScaleY());
+        slideShow = new SlideShow(picHandler, slideShowSpeed, this::displayPicture);
+        gifPlayer = new GifPlayer(this::showAnimationFrame);
+        // Animations are shown through to the end of their loop before the slide show moves on
+        slideShow.setHold(gifPlayer.loopRunningProperty());
+        // Nothing is animated (or decoded for it) while the window is minimized
+        primaryStage.iconifiedProperty().addListener((observable, oldVal, iconified) -> gifPlayer.setPaused(iconified));
 
         BorderPane root = new BorderPane();
         root.setCenter(createCenter());
@@ -141,7 +210,8 @@ public class PVController extends Application {
                     case RIGHT:
                     case A:
                         try {
-                            centerImageView.setImage(picHandler.getPrevPicture().getImage());
+                            keyPressedAt = System.nanoTime();
+                            displayPicture(picHandler.getPrevPicture());
                         } catch (NoPicturesLoadedException npl) {
                             showNoPicturesLoadedWarning();
                         }
@@ -149,7 +219,8 @@ public class PVController extends Application {
                     case LEFT:
                     case D:
                         try {
-                            centerImageView.setImage(picHandler.getNextPicture().getImage());
+                            keyPressedAt = System.nanoTime();
+                            displayPicture(picHandler.getNextPicture());
                         } catch (NoPicturesLoadedException npl) {
                             showNoPicturesLoadedWarning();
                         }
@@ -161,23 +232,25 @@ public class PVController extends Application {
         primaryStage.setTitle("Photo Viewer");
         primaryStage.setScene(mainScene);
         primaryStage.show();
+        // Everything the window can be shown without is done once it has been
+        mainScene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                mainScene.removePostLayoutPulseListener(this);
+                finishStartup(System.currentTimeMillis());
+            }
+        });
     }
 
     /**
-     * Task used to run the slideshow in separate Threat.
+     * Called when the application exits, logs the collected metrics if requested
      */
-    @SuppressWarnings("rawtypes")
-    private final Task slideShowTask = new Task<Void>(){
-        @Override
-        @SuppressWarnings("BusyWait")
-        protected Void call() throws Exception {
-            while(bSlideShowActive) {
-                Thread.sleep((long)(slideShowSpeed.get()*1000));
-                centerImageView.setImage(picHandler.getNextPicture().getImage());
-            }
-            return null;
+    @Override
+    public void stop() {
+        if (Boolean.getBoolean("photoViewer.logMetrics")) {
+            ViewerMetrics.getInstance().logSummary();
         }
-    };
+    }
 
     /**
      * Even wrapper for openFileDialogEvent
@@ -193,7 +266,14 @@ public class PVController extends Application {
      * @return EventHandle executing the clearPreviewView function
      */
     private EventHandler<ActionEvent> clearPreviewViewEvent(){
-        return e -> clearViewer();
+        return e -> {
+            cancelLoading();
+            cancelDuplicateScan();
+            stopWatching();
+            slideShow.stop();
+            picHandler.clear();
+            clearViewer();
+        };
     }
 
     /**
@@ -219,25 +299,17 @@ public class PVController extends Application {
      * Helper method for handling sliders
      */
     private void createSliderActions() {
-        //TODO: Zoom kinda wonky... should be redone.
         // Zoom Action //
-        zoomProperty.addListener(observable -> {
-            centerImageView.setFitWidth(zoomProperty.get() * 4);
-            centerImageView.setFitHeight(zoomProperty.get() * 3);
-        });
-
-        zoomSlider.valueProperty().addListener((observableValue, oldVal, newVal) -> {
-            if (oldVal.doubleValue() < newVal.doubleValue()){
-                zoomProperty.set(zoomProperty.get() + 10);
-            }
-            else if (oldVal.doubleValue() > newVal.doubleValue()){
-                zoomProperty.set(zoomProperty.get() - 10);
-            }
-        });
+        zoomController = new ZoomController(currentViewSP, centerImageView, zoomSlider);
 
         // SlideShowSpeed Action //
-        slideShowSpeed.addListener(observable -> {});
         slideShowSpeedSlider.valueProperty().addListener((observableValue, oldVal, newVal) -> slideShowSpeed.set((double)newVal));
+
+        // Change text of slideshow switches
+        slideShowBtn.textProperty().bind(Bindings.when(slideShow.runningProperty())
+                .then("Stop Slide Show").otherwise("Slide Show"));
+        menuItemStartSlideShow.textProperty().bind(Bindings.when(slideShow.runningProperty())
+                .then("Stop Slide Show").otherwise("Start Slide Show"));
     }
 
     /**
@@ -246,10 +318,315 @@ public class PVController extends Application {
      */
     private void createMenuActions(Stage stage) {
         menuItemOpenFiles.setOnAction(openFileDialogEvent(stage));
+        menuItemOpenFolder.setOnAction(e -> openFolderDialog(stage));
+        menuItemExport.setOnAction(e -> showExportDialog(stage));
         menuItemExitViewer.setOnAction(e -> Platform.exit());
         menuItemClearViewer.setOnAction(clearPreviewViewEvent());
         menuItemStartSlideShow.setOnAction(toggleSlidesHowEvent());
         menuItemShowInfo.setOnAction(showAboutDialogEvent());
+
+        // Sorting and filtering only reorder the loaded pictures, nothing is decoded again
+        for (SortMode mode : SortMode.values()) {
+            RadioMenuItem item = new RadioMenuItem(mode.getDisplayName());
+            item.setToggleGroup(sortModeGroup);
+            item.setUserData(mode);
+            item.setSelected(mode == picHandler.getSortMode());
+            menuSortBy.getItems().add(item);
+        }
+        menuSortBy.getItems().addAll(new SeparatorMenuItem(), menuItemSortDescending);
+        sortModeGroup.selectedToggleProperty().addListener(observable -> applySortMode());
+        menuItemSortDescending.setOnAction(e -> applySortMode());
+        for (String extension : ImageFileReader.SUPPORTED_EXTENSIONS) {
+            CheckMenuItem item = new CheckMenuItem(extension.toUpperCase(Locale.ROOT));
+            item.setUserData(extension);
+            item.setSelected(true);
+            item.setOnAction(e -> applyFormatFilter());
+            menuFormats.getItems().add(item);
+        }
+        menuItemFilterByDate.setOnAction(e -> showDateFilterDialog());
+        menuItemHideDuplicates.setOnAction(e -> findDuplicates());
+        menuItemShowAll.setOnAction(e -> {
+            menuFormats.getItems().forEach(item -> ((CheckMenuItem) item).setSelected(true));
+            applyFilter(PictureFilter.ALL);
+        });
+    }
+
+    /**
+     * Sorts the loaded pictures by the sort mode selected in the view menu
+     */
+    private void applySortMode() {
+        Toggle selected = sortModeGroup.getSelectedToggle();
+        SortMode mode = selected != null ? (SortMode) selected.getUserData() : SortMode.LOADED;
+        picHandler.setSortMode(mode, menuItemSortDescending.isSelected());
+    }
+
+    /**
+     * Only shows the formats checked in the view menu, all of them if none is checked
+     */
+    private void applyFormatFilter() {
+        Set<String> extensions = menuFormats.getItems().stream()
+                .filter(item -> ((CheckMenuItem) item).isSelected())
+                .map(item -> (String) item.getUserData())
+                .collect(Collectors.toSet());
+        if (extensions.size() == menuFormats.getItems().size()) {
+            extensions = Set.of();
+        }
+        applyFilter(picHandler.getFilter().withExtensions(extensions));
+    }
+
+    /**
+     * Filters the loaded pictures, shows another picture if the current one has been filtered out
+     * @param filter the new filter
+     */
+    private void applyFilter(PictureFilter filter) {
+        picHandler.setFilter(filter);
+        if (picHandler.getPictureCount() == 0) {
+            displayPicture(null);
+        } else if (picHandler.getCurrentPictureID() < 0) {
+            try {
+                displayPicture(picHandler.getNextPicture());
+            } catch (NoPicturesLoadedException ignored) {
+                // Can't happen, there are pictures
+            }
+        }
+    }
+
+    /**
+     * Asks for a date range and only shows the pictures taken within it
+     */
+    private void showDateFilterDialog() {
+        PictureFilter filter = picHandler.getFilter();
+        DatePicker fromPicker = new DatePicker(filter.getFrom() != 0 ? toLocalDate(filter.getFrom()) : null);
+        // The upper limit is exclusive, the dialog shows the last included day
+        DatePicker toPicker = new DatePicker(filter.getTo() != 0 ? toLocalDate(filter.getTo() - 1) : null);
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("From:"), fromPicker);
+        grid.addRow(1, new Label("To:"), toPicker);
+
+        Dialog<ButtonType> dateDialog = new Dialog<>();
+        dateDialog.setTitle("Filter by date");
+        dateDialog.setHeaderText("Only show pictures taken within this range.\nLeave a date empty for no limit.");
+        dateDialog.getDialogPane().setContent(grid);
+        dateDialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        dateDialog.showAndWait().filter(button -> button == ButtonType.OK).ifPresent(button -> {
+            LocalDate from = fromPicker.getValue();
+            LocalDate to = toPicker.getValue();
+            applyFilter(picHandler.getFilter().withDateRange(
+                    from != null ? toEpochMilli(from) : 0,
+                    to != null ? toEpochMilli(to.plusDays(1)) : 0));
+        });
+    }
+
+    /**
+     * Searches the shown pictures for duplicates in the background, then offers to hide all but the
+     * largest picture of every group of duplicates
+     */
+    private void findDuplicates() {
+        if (picHandler.getPictureCount() == 0) {
+            showNoPicturesLoadedWarning();
+            return;
+        }
+        cancelDuplicateScan();
+        DuplicateScanTask scanTask = new DuplicateScanTask(picHandler);
+        duplicateScanTask = scanTask;
+        scanTask.setOnSucceeded(e -> {
+            duplicateScanTask = null;
+            showDuplicates(scanTask.getValue());
+        });
+        loadProgressBar.progressProperty().bind(scanTask.progressProperty());
+        loadProgressBar.visibleProperty().bind(scanTask.runningProperty());
+
+        DaemonThreadFactory.start("duplicate-scan", scanTask);
+    }
+
+    /**
+     * Cancels the currently running search for duplicates, if any
+     */
+    private void cancelDuplicateScan() {
+        if (duplicateScanTask != null) {
+            duplicateScanTask.cancel();
+            duplicateScanTask = null;
+        }
+    }
+
+    /**
+     * Tells how many duplicates have been found and hides them if the user agrees
+     * @param groups paths of the pictures of every group of duplicates, the one that stays visible first
+     */
+    private void showDuplicates(List<List<String>> groups) {
+        if (groups.isEmpty()) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Duplicates");
+            alert.setHeaderText("No duplicates found");
+            alert.showAndWait();
+            return;
+        }
+        Set<String> hidden = new HashSet<>(picHandler.getFilter().getHidden());
+        for (List<String> group : groups) {
+            hidden.addAll(group.subList(1, group.size()));
+        }
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Duplicates");
+        alert.setHeaderText((hidden.size() - picHandler.getFilter().getHidden().size())
+                + " pictures look like others, in " + groups.size() + " groups");
+        alert.setContentText("Hide them? The largest picture of every group stays visible."
+                + "\n\"Show all pictures\" shows them again.");
+        alert.showAndWait().filter(button -> button == ButtonType.OK)
+                .ifPresent(button -> applyFilter(picHandler.getFilter().withHidden(hidden)));
+    }
+
+    /**
+     * Asks which pictures to export and how, then exports them in the background.
+     * While an export is running, offers to cancel it instead.
+     * @param stage the primary stage, used to display the folder-dialog
+     */
+    private void showExportDialog(Stage stage) {
+        if (exportTask != null) {
+            Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+            alert.setTitle("Export");
+            alert.setHeaderText("An export is running");
+            alert.setContentText("Cancel it? Pictures that have been written already are kept.");
+            alert.showAndWait().filter(button -> button == ButtonType.OK).ifPresent(button -> exportTask.cancel());
+            return;
+        }
+        List<Path> allFiles = picHandler.getPictures().stream()
+                .map(picture -> Paths.get(picture.getFileRef()))
+                .collect(Collectors.toList());
+        List<Path> selectedFiles = previewPane.getSelectionModel().getSelectedItems().stream()
+                .map(preview -> Paths.get(preview.getFileRef()))
+                .collect(Collectors.toList());
+        if (allFiles.isEmpty()) {
+            showNoPicturesLoadedWarning();
+            return;
+        }
+
+        ToggleGroup scopeGroup = new ToggleGroup();
+        RadioButton allButton = new RadioButton("All shown pictures (" + allFiles.size() + ")");
+        RadioButton selectedButton = new RadioButton("Selected pictures (" + selectedFiles.size() + ")");
+        allButton.setToggleGroup(scopeGroup);
+        selectedButton.setToggleGroup(scopeGroup);
+        selectedButton.setDisable(selectedFiles.isEmpty());
+        (selectedFiles.size() > 1 ? selectedButton : allButton).setSelected(true);
+        // 0 keeps the original size
+        Spinner<Integer> widthSpinner = new Spinner<>(0, 100_000, 1920, 160);
+        Spinner<Integer> heightSpinner = new Spinner<>(0, 100_000, 1080, 90);
+        widthSpinner.setEditable(true);
+        heightSpinner.setEditable(true);
+        ChoiceBox<ImageFileWriter.Format> formatBox =
+                new ChoiceBox<>(FXCollections.observableArrayList(ImageFileWriter.Format.values()));
+        formatBox.setValue(ImageFileWriter.Format.JPEG);
+        Slider qualitySlider = new Slider(0, 100, 85);
+        qualitySlider.setShowTickLabels(true);
+        qualitySlider.setMajorTickUnit(25);
+        CheckBox overwriteBox = new CheckBox("Overwrite existing files");
+        TextField folderField = new TextField(lastExportFolder != null ? lastExportFolder.toString() : "");
+        Button browseButton = new Button("Browse...");
+        browseButton.setOnAction(e -> {
+            DirectoryChooser directoryChooser = new DirectoryChooser();
+            directoryChooser.setTitle("Export to");
+            File folder = directoryChooser.showDialog(stage);
+            if (folder != null) {
+                folderField.setText(folder.getPath());
+            }
+        });
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Pictures:"), new VBox(5, allButton, selectedButton));
+        grid.addRow(1, new Label("Max. width:"), widthSpinner);
+        grid.addRow(2, new Label("Max. height:"), heightSpinner);
+        grid.addRow(3, new Label("Format:"), formatBox);
+        grid.addRow(4, new Label("Quality:"), qualitySlider);
+        grid.addRow(5, new Label("Folder:"), new HBox(5, folderField, browseButton));
+        grid.add(overwriteBox, 1, 6);
+
+        Dialog<ButtonType> exportDialog = new Dialog<>();
+        exportDialog.setTitle("Export");
+        exportDialog.setHeaderText("Write resized copies of the pictures to a folder.\nA size of 0 keeps the original size.");
+        exportDialog.getDialogPane().setContent(grid);
+        exportDialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        exportDialog.getDialogPane().lookupButton(ButtonType.OK).disableProperty()
+                .bind(folderField.textProperty().isEmpty());
+        exportDialog.showAndWait().filter(button -> button == ButtonType.OK).ifPresent(button -> {
+            ExportSettings settings = new ExportSettings(spinnerValue(widthSpinner), spinnerValue(heightSpinner),
+                    formatBox.getValue(), (float) (qualitySlider.getValue() / 100), overwriteBox.isSelected());
+            lastExportFolder = Paths.get(folderField.getText());
+            startExport(selectedButton.isSelected() ? selectedFiles : allFiles, lastExportFolder, settings);
+        });
+    }
+
+    /**
+     * @return value of a spinner including text that has been typed but not committed, the previous value if
+     *         the text is no number
+     */
+    private static int spinnerValue(Spinner<Integer> spinner) {
+        try {
+            spinner.commitValue();
+        } catch (NumberFormatException e) {
+            spinner.cancelEdit();
+        }
+        return spinner.getValue();
+    }
+
+    /**
+     * Exports pictures in the background and tells the outcome once it's done
+     * @param files the pictures to export
+     * @param folder folder the exported pictures are written to
+     * @param settings size, format and quality of the exported pictures
+     */
+    private void startExport(List<Path> files, Path folder, ExportSettings settings) {
+        ExportTask task = new ExportTask(files, folder, settings);
+        exportTask = task;
+        menuItemExport.setText("Cancel export...");
+        task.setOnSucceeded(e -> {
+            exportFinished();
+            showExportResult(task.getValue(), folder);
+        });
+        task.setOnCancelled(e -> exportFinished());
+        task.setOnFailed(e -> {
+            exportFinished();
+            showWarning("Export failed", "The pictures can't be exported:\n" + task.getException().getMessage());
+        });
+        loadProgressBar.progressProperty().bind(task.progressProperty());
+        loadProgressBar.visibleProperty().bind(task.runningProperty());
+
+        DaemonThreadFactory.start("picture-export", task);
+    }
+
+    private void exportFinished() {
+        exportTask = null;
+        menuItemExport.setText("Export...");
+    }
+
+    /**
+     * Tells how many pictures have been exported and lists the first ones that failed
+     * @param result outcome of the export
+     * @param folder folder the pictures have been exported to
+     */
+    private void showExportResult(BatchExporter.Result result, Path folder) {
+        List<BatchExporter.FileResult> failures = result.getFailures();
+        Alert alert = new Alert(failures.isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("Export");
+        alert.setHeaderText(result.getExported() + " of " + result.getTotal() + " pictures exported to " + folder
+                + (result.isCancelled() ? "\nThe export has been cancelled." : ""));
+        if (!failures.isEmpty()) {
+            alert.setContentText(failures.size() + " pictures failed:\n" + failures.stream()
+                    .limit(10)
+                    .map(BatchExporter.FileResult::getError)
+                    .collect(Collectors.joining("\n")));
+        }
+        alert.showAndWait();
+    }
+
+    private static LocalDate toLocalDate(long epochMilli) {
+        return Instant.ofEpochMilli(epochMilli).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static long toEpochMilli(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 
     /**
@@ -263,7 +640,7 @@ public class PVController extends Application {
         // Displays the previous Picture
         prevPicBtn.setOnAction(e -> {
             try{
-                centerImageView.setImage(picHandler.getPrevPicture().getImage());
+                displayPicture(picHandler.getPrevPicture());
             }
             catch (NoPicturesLoadedException npl){ showNoPicturesLoadedWarning();}
         });
@@ -271,7 +648,7 @@ public class PVController extends Application {
         // Displays the next picture
         nextPicBtn.setOnAction(e -> {
             try{
-                centerImageView.setImage(picHandler.getNextPicture().getImage());
+                displayPicture(picHandler.getNextPicture());
             }
             catch (NoPicturesLoadedException npl){ showNoPicturesLoadedWarning();}
         });
@@ -287,10 +664,14 @@ public class PVController extends Application {
 
         // Clicking on any picture in the Previews opens said picture in the main view
         previewPane.setOnMouseClicked(e -> {
-            try {
-                centerImageView.setImage(picHandler.getPictureByID(previewPane.getSelectionModel().getSelectedIndex()).getImage());
-            } catch (NoPicturesLoadedException ignored) {
-
+            PicturePreview selected = previewPane.getSelectionModel().getSelectedItem();
+            if (selected == null) {
+                return;
+            }
+            // The preview pane may not know about pictures that have just been added, so the path is looked up
+            Picture picture = picHandler.getPictureByRef(selected.getFileRef());
+            if (picture != null) {
+                displayPicture(picture);
             }
         });
     }
@@ -300,22 +681,12 @@ public class PVController extends Application {
      */
     private void toggleSlideShow(){
         try {
-            if (!bSlideShowActive) {
+            if (!slideShow.isRunning()) {
                 // This statement is to catch any errors regarding no images loaded
-                centerImageView.setImage(picHandler.getNextPicture().getImage());
-                bSlideShowActive = true;
-                slideShowThread = new Thread(slideShowTask);
-                slideShowThread.start();
-                // Change text of slideshow switches
-                slideShowBtn.setText("Stop Slide Show");
-                menuItemStartSlideShow.setText("Stop Slide Show");
+                displayPicture(picHandler.getNextPicture());
+                slideShow.start();
             } else {
-                bSlideShowActive = false;
-                // Change text of slideshow switches
-                slideShowBtn.setText("Slide Show");
-                menuItemStartSlideShow.setText("Start Slide Show");
-                assert slideShowThread != null;
-                    slideShowThread.interrupt();
+                slideShow.stop();
             }
         } catch (NoPicturesLoadedException npl){
             showNoPicturesLoadedWarning();
@@ -323,8 +694,8 @@ public class PVController extends Application {
     }
 
     /**
-     * Open file-dialog allowing to select multiple pictures (via filter),
-     * adds them to the PictureHandler and updates the picture preview
+     * Open file-dialog allowing to select multiple pictures (via filter)
+     * and starts loading them in the background
      * @param stage the primary stage, used to display the file-open-dialog
      */
     private void openFileDialog(Stage stage) {
@@ -334,39 +705,354 @@ public class PVController extends Application {
                 new FileChooser.ExtensionFilter("Image Files", "*.png", "*.jpg", "*.gif"));
         List<File> selectedPictures = fileChooser.showOpenMultipleDialog(stage);
         if (selectedPictures != null) {
+            stopWatching();
+            loadPictures(selectedPictures);
+        }
+    }
+
+    /**
+     * Open folder-dialog, loads all pictures of the selected folder and keeps watching it,
+     * so pictures that are added, changed or removed later on are updated automatically
+     * @param stage the primary stage, used to display the folder-open-dialog
+     */
+    private void openFolderDialog(Stage stage) {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Open Folder");
+        File selectedFolder = directoryChooser.showDialog(stage);
+        if (selectedFolder == null) {
+            return;
+        }
+        Path folder = selectedFolder.toPath();
+        stopWatching();
+        try {
+            // Watch before listing, so no picture written in between is missed
+            folderWatcher = new FolderWatcher(folder, this::onFolderChanged);
+            folderWatcher.start();
+        } catch (IOException e) {
+            showWarning("Folder not watched", "The folder can't be watched for new pictures:\n" + e.getMessage());
+        }
+        try {
+            loadPictures(listPictures(folder));
+        } catch (IOException e) {
+            stopWatching();
+            showWarning("Folder not readable", "The folder can't be read:\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching the currently opened folder, if any
+     */
+    private void stopWatching() {
+        if (folderWatcher != null) {
+            folderWatcher.close();
+            folderWatcher = null;
+        }
+        pendingFolderChanges.clear();
+    }
+
+    /**
+     * Called by the FolderWatcher, changes are held back until a running load has finished
+     * @param changedFiles paths of the files that have been created, changed or removed
+     */
+    private void onFolderChanged(Set<Path> changedFiles) {
+        pendingFolderChanges.addAll(changedFiles);
+        if (pictureLoadTask == null || pictureLoadTask.isDone()) {
+            applyFolderChanges();
+        }
+    }
+
+    /**
+     * Brings the PictureHandler and the preview in line with the current content of the watched folder.
+     * Only the affected pictures are added, replaced or removed, all other decoded pictures stay cached.
+     */
+    private void applyFolderChanges() {
+        if (folderWatcher == null || pendingFolderChanges.isEmpty()) {
+            return;
+        }
+        Set<Path> changedFiles = new LinkedHashSet<>(pendingFolderChanges);
+        pendingFolderChanges.clear();
+        if (changedFiles.remove(folderWatcher.getFolder())) {
+            // Events have been lost, so every known and every present file is checked
+            PictureCatalog catalog = picHandler.getCatalog();
+            for (int i = 0; i < catalog.size(); i++) {
+                changedFiles.add(Paths.get(catalog.getFileRef(i)));
+            }
+            try {
+                listPictures(folderWatcher.getFolder()).forEach(f -> changedFiles.add(f.toPath()));
+            } catch (IOException ignored) {
+                // Known files are still checked, missing ones get removed
+            }
+        }
+
+        for (Path file : changedFiles) {
+            String fileRef = file.toString();
+            boolean present = Files.isRegularFile(file) && ImageFileReader.isSupported(file);
+            if (present && !picHandler.contains(fileRef)) {
+                picHandler.addPictures(List.of(picHandler.createPicture(fileRef)), List.of(readMetadata(file)));
+            } else if (present) {
+                Picture picture = picHandler.createPicture(fileRef);
+                if (!picHandler.isUpToDate(picture)) {
+                    int pictureID = picHandler.indexOf(fileRef);
+                    boolean displayed = pictureID >= 0 && pictureID == picHandler.getCurrentPictureID();
+                    picHandler.replacePicture(picture, readMetadata(file));
+                    // The picture may have moved, the current ID follows it
+                    if (displayed && picHandler.indexOf(fileRef) == picHandler.getCurrentPictureID()) {
+                        displayPicture(picHandler.getCurrentPicture());
+                    }
+                }
+            } else if (picHandler.contains(fileRef)) {
+                int pictureID = picHandler.indexOf(fileRef);
+                boolean displayed = pictureID >= 0 && pictureID == picHandler.getCurrentPictureID();
+                picHandler.removePicture(fileRef);
+                // The cursor has moved to the picture before the deleted one, which is shown instead
+                if (displayed) {
+                    displayPicture(picHandler.getCurrentPicture());
+                }
+            }
+        }
+
+        if (picHandler.getPictureCount() == 0) {
+            displayPicture(null);
+        } else if (picHandler.getCurrentPictureID() < 0) {
             try {
-                picHandler.loadPictures(selectedPictures);
-                PVController.this.updatePreviewView();
-                centerImageView.setImage(picHandler.getNextPicture().getImage());
-            } catch (NoPicturesLoadedException npl) {
-                showNoPicturesLoadedWarning();
+                displayPicture(picHandler.getNextPicture());
+            } catch (NoPicturesLoadedException ignored) {
+                // Can't happen, there are pictures
             }
         }
     }
 
     /**
-     * Method that updates the preview Pane with all PreviewPictures provided by the Picture Handler
+     * Reads the metadata of a single changed file, only its header is read
+     * @param file the picture file
+     * @return metadata of the file, PictureMetadata.UNKNOWN if it can't be read
+     */
+    private static PictureMetadata readMetadata(Path file) {
+        PictureMetadata metadata = MetadataReader.read(file);
+        return metadata != null ? metadata : PictureMetadata.UNKNOWN;
+    }
+
+    /**
+     * Lists all supported pictures of a folder, sorted by name
+     * @param folder the folder to list
+     * @return the pictures of the folder
+     * @throws IOException if the folder can't be read
+     */
+    private static List<File> listPictures(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(f -> Files.isRegularFile(f) && ImageFileReader.isSupported(f))
+                    .sorted()
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Replaces the loaded pictures with the given files.
+     * A load that is still running is cancelled, the new pictures are added to the
+     * preview as soon as they are decoded and the first one is displayed right away.
+     * @param pictureFiles files that will be loaded
      */
-    private void updatePreviewView(){
+    private void loadPictures(List<File> pictureFiles) {
+        cancelLoading();
+        cancelDuplicateScan();
+        slideShow.stop();
+        picHandler.clear();
         clearViewer();
-        //previewPane.setPadding(new Insets(5,5,5,5));
-        for(PicturePreview pp: picHandler.getPreviews()){
-            ImageView iv = new ImageView(pp.getImage());
-            iv.setFitWidth(150);
-            iv.setFitHeight(150);
-            iv.setSmooth(true);
-            iv.setPreserveRatio(true);
-            previewPane.getItems().add(iv);
+
+        pictureLoadTask = new PictureLoadTask(pictureFiles, picHandler, this::onPicturesAdded);
+        pictureLoadTask.setOnSucceeded(e -> applyFolderChanges());
+        loadProgressBar.progressProperty().bind(pictureLoadTask.progressProperty());
+        loadProgressBar.visibleProperty().bind(pictureLoadTask.runningProperty());
+
+        DaemonThreadFactory.start("picture-load", pictureLoadTask);
+    }
+
+    /**
+     * Cancels the currently running load, if any
+     */
+    private void cancelLoading() {
+        if (pictureLoadTask != null) {
+            pictureLoadTask.cancel();
+            pictureLoadTask = null;
         }
     }
 
     /**
-     * Used to clear the preview and center panel
+     * Displays the first picture once it is available. The preview pane shows the previews of the
+     * PictureHandler, they are only decoded once their PreviewCell becomes visible.
+     */
+    private void onPicturesAdded(){
+        // The center image is also empty while the first picture is being decoded, the cursor isn't
+        if (picHandler.getCurrentPictureID() < 0) {
+            try {
+                displayPicture(picHandler.getNextPicture());
+            } catch (NoPicturesLoadedException ignored) {
+                // Can't happen, pictures have just been added
+            }
+        }
+    }
+
+    /**
+     * Shows a picture in the center panel
+     * @param picture the picture to show, null to clear the center panel
+     */
+    private void displayPicture(Picture picture){
+        if (picture == null || picture.isDecoded()) {
+            displayPicture(picture, picture != null ? picture.getImage() : null);
+            return;
+        }
+        long request = ++displayRequest;
+        long pressedAt = keyPressedAt;
+        keyPressedAt = 0;
+        gifPlayer.stop();
+        tileLayer.setPicture(picture);
+        // Show the low resolution level right away and swap in the picture once it's decoded
+        Picture lowResolution = picture.getLowResolution();
+        boolean lowResolutionShown = lowResolution != null && lowResolution.isDecoded();
+        showLevel(lowResolutionShown ? lowResolution.getImage() : null, false);
+        progressiveDecoder.execute(() -> {
+            if (request != displayRequest) {
+                // The user has moved on meanwhile
+                return;
+            }
+            if (!lowResolutionShown && lowResolution != null) {
+                Image preview = lowResolution.getImage();
+                Platform.runLater(() -> {
+                    if (request == displayRequest && !displayingFinalLevel) {
+                        showLevel(preview, false);
+                    }
+                });
+            }
+            Image full = picture.getImage();
+            Platform.runLater(() -> {
+                if (request == displayRequest) {
+                    showLevel(full, true);
+                    recordKeyToDisplay(pressedAt);
+                    gifPlayer.play(picture, full);
+                }
+            });
+        });
+    }
+
+    /**
+     * Shows a picture whose image has been decoded already, e.g. by the slide show
+     * @param picture the picture to show, null to clear the center panel
+     * @param image the decoded image of the picture, null if it couldn't be decoded
+     */
+    private void displayPicture(Picture picture, Image image){
+        // Also drops a decode of a previously displayed picture that is still running
+        displayRequest++;
+        long pressedAt = keyPressedAt;
+        keyPressedAt = 0;
+        gifPlayer.stop();
+        tileLayer.setPicture(picture);
+        showLevel(image, true);
+        recordKeyToDisplay(pressedAt);
+        gifPlayer.play(picture, image);
+    }
+
+    /**
+     * Puts one resolution level of the displayed picture into the center panel
+     * @param image the image to show
+     * @param finalLevel true if this is the picture itself and not a lower resolution level of it
+     */
+    private void showLevel(Image image, boolean finalLevel){
+        centerImageView.setImage(image);
+        displayingFinalLevel = finalLevel;
+        updateTiles();
+    }
+
+    /**
+     * Shows a frame of an animated GIF instead of the decoded picture. Tiles would show the first frame,
+     * so there are none while an animation is playing.
+     * @param frame the composed frame, in the size of the decoded picture
+     */
+    private void showAnimationFrame(Image frame){
+        tileLayer.setPicture(null);
+        centerImageView.setImage(frame);
+    }
+
+    /**
+     * Does the work the window can be shown without, once its first frame has been laid out, so it doesn't
+     * delay it: records the time to the first frame, loads the icons of the prev/next buttons from the class path
+     * and publishes the metrics through JMX, which is slow to initialize. The latter two run on a background thread.
+     * @param shownAt System.currentTimeMillis of the first frame
+     */
+    private void finishStartup(long shownAt){
+        DaemonThreadFactory.start("startup-loader", () -> {
+            ViewerMetrics.getInstance().recordFirstFrame(shownAt);
+            DecodeResult prevIcon = ImageFileReader.decodeResource(PVController.class, ARROWPREV);
+            DecodeResult nextIcon = ImageFileReader.decodeResource(PVController.class, ARROWNEXT);
+            Platform.runLater(() -> setArrowIcons(prevIcon, nextIcon));
+            ViewerMetrics.getInstance().register();
+            // Used to measure the start and to train the class data sharing archive, see build.gradle
+            if (Boolean.getBoolean("photoViewer.exitAfterFirstFrame")) {
+                Platform.exit();
+            }
+        });
+    }
+
+    /**
+     * Sets the icons of the prev/next buttons, they keep their text if either of them couldn't be loaded
+     */
+    private void setArrowIcons(DecodeResult prevIcon, DecodeResult nextIcon){
+        if (!prevIcon.isOk() || !nextIcon.isOk()) {
+            return;
+        }
+        ImageView prevPic = new ImageView(prevIcon.getImage());
+        prevPic.setFitHeight(10);
+        prevPic.setPreserveRatio(true);
+        prevPicBtn.setText(null);
+        prevPicBtn.setGraphic(prevPic);
+
+        ImageView nextPic = new ImageView(nextIcon.getImage());
+        nextPic.setFitHeight(10);
+        nextPic.setPreserveRatio(true);
+        nextPicBtn.setText(null);
+        nextPicBtn.setGraphic(nextPic);
+    }
+
+    /**
+     * Records the time from a key press until the picture is displayed, which is after the next layout pass
+     * @param pressedAt System.nanoTime of the key press, 0 if the picture wasn't requested by a key press
+     */
+    private void recordKeyToDisplay(long pressedAt){
+        Scene scene = centerImageView.getScene();
+        if (pressedAt == 0 || scene == null) {
+            return;
+        }
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                ViewerMetrics.getInstance().recordKeyToDisplay(System.nanoTime() - pressedAt);
+            }
+        });
+    }
+
+    /**
+     * Aligns the tile layer with the center image and lets it load the tiles of the visible part
+     */
+    private void updateTiles(){
+        Image image = centerImageView.getImage();
+        // Tiles are only worth loading once the picture itself is shown, not while a lower level is
+        if (image == null || !displayingFinalLevel) {
+            return;
+        }
+        Bounds imageBounds = centerImageView.getBoundsInParent();
+        tileLayer.resizeRelocate(imageBounds.getMinX(), imageBounds.getMinY(),
+                imageBounds.getWidth(), imageBounds.getHeight());
+        Bounds visible = tileLayer.sceneToLocal(currentViewSP.localToScene(currentViewSP.getLayoutBounds()));
+        tileLayer.update(visible, imageBounds.getWidth(), image.getWidth());
+    }
+
+    /**
+     * Used to clear the center panel, the preview panel follows the PictureHandler
      */
     private void clearViewer(){
-        previewPane.getItems().clear();
         //previewPane.setPadding(new Insets(5,5,5,5));
-        centerImageView.setImage(null);
+        displayPicture(null);
     }
 
     /**
@@ -387,6 +1073,18 @@ public class PVController extends Application {
         aboutDialog.show();
     }
 
+    /**
+     * Displays a warning dialogue
+     * @param title title of the dialogue
+     * @param message text of the dialogue
+     */
+    private void showWarning(String title, String message){
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle(title);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
     /**
      * Displays a warning dialogue informing the user that no pictures has been loaded yet
      * and the executed action is not possible.
@@ -407,11 +1105,14 @@ public class PVController extends Application {
     private Node createTop(){
         SeparatorMenuItem sep = new SeparatorMenuItem();
         // File Menu
-        fileMenu.getItems().addAll(menuItemOpenFiles, menuItemClearViewer, sep, menuItemStartSlideShow, menuItemExitViewer);
+        fileMenu.getItems().addAll(menuItemOpenFiles, menuItemOpenFolder, menuItemExport, menuItemClearViewer, sep, menuItemStartSlideShow, menuItemExitViewer);
         // About Menu
         aboutMenu.getItems().addAll(menuItemShowInfo);
+        // View Menu
+        viewMenu.getItems().addAll(menuSortBy, menuFormats, menuItemFilterByDate, menuItemHideDuplicates,
+                menuItemShowAll);
         // Menu bar
-        menuBar.getMenus().addAll(fileMenu, aboutMenu);
+        menuBar.getMenus().addAll(fileMenu, viewMenu, aboutMenu);
         // Adding Menus to Top Panel
         menu.getChildren().addAll(menuBar);
         return menu;
@@ -423,7 +1124,7 @@ public class PVController extends Application {
      */
     private Node createCenter(){
         // Use stack pane and magic to center the image on screen
-        StackPane imageHolder = new StackPane(centerImageView);
+        StackPane imageHolder = new StackPane(centerImageView, tileLayer);
         GridPane grid = new GridPane();
         currentViewSP.setContent(imageHolder);
 
@@ -438,6 +1139,13 @@ public class PVController extends Application {
         centerImageView.setX(10);
         centerImageView.setY(10);
         centerImageView.setPreserveRatio(true);
+
+        // Tiles follow scrolling, zooming and resizing
+        InvalidationListener tileUpdater = observable -> updateTiles();
+        currentViewSP.hvalueProperty().addListener(tileUpdater);
+        currentViewSP.vvalueProperty().addListener(tileUpdater);
+        currentViewSP.viewportBoundsProperty().addListener(tileUpdater);
+        centerImageView.boundsInParentProperty().addListener(tileUpdater);
         return currentViewSP;
     }
 
@@ -452,32 +1160,14 @@ public class PVController extends Application {
         zoomSlider = new Slider(0, 100, 25);
         zoomSlider.setShowTickMarks(true);
         Label zoomLabel = new Label("Zoom:");
-        bottomLeft.getChildren().addAll(openFilesButton, zoomLabel, zoomSlider);
+        loadProgressBar.managedProperty().bind(loadProgressBar.visibleProperty());
+        loadProgressBar.setVisible(false);
+        bottomLeft.getChildren().addAll(openFilesButton, zoomLabel, zoomSlider, loadProgressBar);
         bottomLeft.setSpacing(5);
         bottomLowerPanel.setLeft(bottomLeft);
 
         // Middle Bottom Part
-        try {
-            // Set pictures as prev/next buttons
-            ImageView prevPic = new ImageView(new Image(new FileInputStream(ARROWPREV)));
-            prevPic.setFitHeight(10);
-            prevPic.setPreserveRatio(true);
-            prevPicBtn.setText(null);
-            prevPicBtn.setGraphic(prevPic);
-
-            ImageView nextPic = new ImageView(new Image(new FileInputStream(ARROWNEXT)));
-            nextPic.setFitHeight(10);
-            nextPic.setPreserveRatio(true);
-            nextPicBtn.setText(null);
-            nextPicBtn.setGraphic(nextPic);
-        } catch (FileNotFoundException ignored){
-            // fallback to text
-            prevPicBtn.setGraphic(null);
-            nextPicBtn.setGraphic(null);
-
-            prevPicBtn.setText("<-");
-            nextPicBtn.setText("->");
-        }
+        // The prev/next buttons show text until their icons have been loaded (see finishStartup)
         bottomMid.setAlignment(Pos.CENTER);
         bottomMid.setSpacing(5);
         bottomMid.getChildren().addAll(prevPicBtn, slideShowBtn, nextPicBtn);
@@ -494,7 +1184,13 @@ public class PVController extends Application {
         // Bottom upper Part -> Picture preview
         pictureSelector.setPadding(new Insets(2,2,2,2));
         previewPane.setOrientation(Orientation.HORIZONTAL);
-        previewPane.setMaxHeight(150);
+        previewPane.setMaxHeight(PicturePreview.THUMBNAIL_SIZE);
+        // Only the visible previews get a cell, a fixed cell size spares measuring every item
+        previewPane.setItems(picHandler.getPreviews());
+        previewPane.setCellFactory(listView -> new PreviewCell());
+        previewPane.setFixedCellSize(PicturePreview.THUMBNAIL_SIZE + 10);
+        // Several previews can be selected for an export
+        previewPane.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         //selectionPane.setSpacing(5);
         pictureSelector.getChildren().add(previewPane);
 
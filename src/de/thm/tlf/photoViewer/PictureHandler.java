@@ -1,24 +1,75 @@
 package de.thm.tlf.photoViewer;
 
+import de.thm.tlf.photoViewer.data.ImageCache;
+import de.thm.tlf.photoViewer.data.LibraryIndex;
 import de.thm.tlf.photoViewer.data.Picture;
+import de.thm.tlf.photoViewer.data.PictureCatalog;
+import de.thm.tlf.photoViewer.data.PictureFilter;
+import de.thm.tlf.photoViewer.data.PictureOrder;
 import de.thm.tlf.photoViewer.data.PicturePreview;
+import de.thm.tlf.photoViewer.data.SortMode;
+import de.thm.tlf.photoViewer.data.ThumbnailCache;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import de.thm.tlf.photoViewer.metrics.ViewerMetrics;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Class for handling interaction with Images
  * Uses custom Image-wrappers "Picture" and "PicturePreview"
  * Implemented using singleton pattern to avoid multiple instances
+ * The loaded files are listed in a compact PictureCatalog, Picture and PicturePreview handles
+ * are created from it whenever they are requested and can be dropped again right away
+ * Pictures are shown in the order of a PictureOrder, which sorts and filters the catalog without touching it.
+ * Picture IDs are positions in this order, navigation and the previews follow it
+ * Decoded images are kept in a bounded ImageCache, its budget can be set with the
+ * system property "photoViewer.imageCacheBytes" (defaults to a quarter of the max heap)
+ * Previews are read from and written to a persistent ThumbnailCache, decoded previews are kept in a
+ * separate ImageCache limited by "photoViewer.previewCacheBytes" (default 64 MB)
+ * The metadata of opened files is remembered across sessions in a LibraryIndex
+ * The neighbours of the current picture are decoded ahead of time by a PicturePrefetcher, the amount can be
+ * set with "photoViewer.prefetchAhead" (default 3) and "photoViewer.prefetchBehind" (default 1)
+ * The hit rates of all caches and the prefetch queue are reported to the ViewerMetrics
+ * Thread safe: changes are made under a write lock and published as an immutable Snapshot of the catalog and
+ * order, so pictures can be added from several loader threads at once. The current position is an atomic
+ * Cursor into the latest snapshot, navigating only swaps the cursor and never waits for a change in progress,
+ * reads don't lock at all. Changes move the cursor along in the same atomic step that publishes the snapshot.
  */
 public final class PictureHandler {
     ////////////////////////////
     //------ Attributes ------//
     ////////////////////////////
-    private final ArrayList<Picture> pictures = new ArrayList<>();
-    private final ArrayList<PicturePreview> previews = new ArrayList<>();
+    // Catalog and order are only changed while holding the write lock, readers use the published snapshot
+    private final Object writeLock = new Object();
+    private PictureCatalog catalog = new PictureCatalog();
+    private PictureOrder order = new PictureOrder(catalog);
+    // Incremented on every clear, so loaders can tell that their pictures aren't wanted anymore
+    private volatile long generation = 0;
 
-    private int currentPictureID = -1;
+    private final AtomicReference<Cursor> cursor = new AtomicReference<>(new Cursor(snapshot(), -1));
+    private final PreviewList previews = new PreviewList(cursor.get().snapshot);
+    private volatile Executor previewExecutor = Runnable::run;
+
+    private final ImageCache imageCache = new ImageCache(
+            Long.getLong("photoViewer.imageCacheBytes", Runtime.getRuntime().maxMemory() / 4));
+
+    private final ImageCache previewCache = new ImageCache(
+            Long.getLong("photoViewer.previewCacheBytes", 64L * 1024 * 1024));
+
+    private final ThumbnailCache thumbnailCache = ThumbnailCache.createDefault();
+    private final LibraryIndex libraryIndex = LibraryIndex.createDefault();
+    private final PicturePrefetcher prefetcher = new PicturePrefetcher(
+            Integer.getInteger("photoViewer.prefetchAhead", 3),
+            Integer.getInteger("photoViewer.prefetchBehind", 1));
+
+    private volatile double maxDecodeWidth = 0;
+    private volatile double maxDecodeHeight = 0;
 
     private static final PictureHandler INSTANCE = new PictureHandler();
 
@@ -29,7 +80,13 @@ public final class PictureHandler {
     /**
      * Prevent creation of new instances
      */
-    private PictureHandler() {}
+    private PictureHandler() {
+        ViewerMetrics metrics = ViewerMetrics.getInstance();
+        metrics.registerCache("image", imageCache::getHits, imageCache::getMisses);
+        metrics.registerCache("preview", previewCache::getHits, previewCache::getMisses);
+        metrics.registerCache("thumbnail", thumbnailCache::getHits, thumbnailCache::getMisses);
+        metrics.registerQueue("picture-prefetcher", prefetcher::getQueueDepth);
+    }
 
     /**
      * Singleton-Pattern method to acquire the only instance
@@ -42,71 +99,703 @@ public final class PictureHandler {
     /////////////////////////
 
     /**
-     * @return Arraylist of the PicturePreview
+     * @return read only view of the shown Pictures in their order at the time of the call, its handles are
+     * created on access. Later changes don't show up in it, so it can be read on any thread.
+     */
+    public List<Picture> getPictures(){
+        return cursor.get().snapshot.pictures;
+    }
+
+    /**
+     * @return ID of the picture that has been navigated to last, -1 if none
+     */
+    public int getCurrentPictureID(){
+        return cursor.get().pictureID;
+    }
+
+    /**
+     * @return the picture that has been navigated to last, null if none
+     */
+    public Picture getCurrentPicture(){
+        Cursor current = cursor.get();
+        return current.pictureID >= 0 ? current.snapshot.pictureAt(current.pictureID) : null;
+    }
+
+    /**
+     * Observable read only view of the previews of the shown pictures in their current order,
+     * its handles are created on access. Sorting is reported as a permutation.
+     * Changes are reported through the executor set with setPreviewExecutor, the list only changes along
+     * with them, so it may lag behind the other methods until the reports have been delivered.
+     * @return list of the PicturePreviews
      */
-    public ArrayList<PicturePreview> getPreviews(){
+    public ObservableList<PicturePreview> getPreviews(){
         return previews;
     }
 
     /**
-     * Method to load a list of Files into Picture objects and store them locally
+     * Sets the thread the changes of the previews are reported on. By default they are reported right away on
+     * the thread that changes the PictureHandler, for a view that is shown this has to be Platform::runLater.
+     * @param executor runs the reports in the order they are handed to it
+     */
+    public void setPreviewExecutor(Executor executor){
+        this.previewExecutor = executor;
+    }
+
+    /**
+     * @return read only snapshot of the catalog listing all loaded picture files, later changes don't show up in it
+     */
+    public PictureCatalog getCatalog(){
+        return cursor.get().snapshot.catalog;
+    }
+
+    public SortMode getSortMode(){
+        return cursor.get().snapshot.order.getSortMode();
+    }
+
+    public boolean isSortDescending(){
+        return cursor.get().snapshot.order.isDescending();
+    }
+
+    public PictureFilter getFilter(){
+        return cursor.get().snapshot.order.getFilter();
+    }
+
+    /**
+     * @return number that changes whenever all pictures are removed, see addPictures
+     */
+    public long getGeneration(){
+        return generation;
+    }
+
+    /**
+     * Sorts the loaded pictures, the current picture stays the same.
+     * Only the order of the catalog entries changes, nothing is decoded.
+     * The sort mode is kept for pictures loaded later on.
+     * @param sortMode the sort key
+     * @param descending true to show the largest key first
+     */
+    public void setSortMode(SortMode sortMode, boolean descending){
+        synchronized (writeLock) {
+            if(sortMode == order.getSortMode() && descending == order.isDescending()){
+                return;
+            }
+            int[] previous = order.apply(sortMode, descending, order.getFilter());
+            int[] permutation = new int[previous.length];
+            for(int i = 0; i < previous.length; i++){
+                permutation[i] = order.positionOf(previous[i]);
+            }
+            Snapshot next = publish(pictureID -> permutation[pictureID]);
+            previewExecutor.execute(() -> previews.permuted(next, permutation));
+        }
+    }
+
+    /**
+     * Only shows the pictures that pass the filter. The current picture stays the same if it passes,
+     * otherwise there is no current picture until the next navigation.
+     * The filter is kept for pictures loaded later on.
+     * @param filter selects the pictures that are shown, PictureFilter.ALL to show all of them
+     */
+    public void setFilter(PictureFilter filter){
+        synchronized (writeLock) {
+            if(filter.equals(order.getFilter())){
+                return;
+            }
+            int[] previous = order.apply(order.getSortMode(), order.isDescending(), filter);
+            Snapshot next = publish(pictureID -> order.positionOf(previous[pictureID]));
+            previewExecutor.execute(() -> previews.reordered(next));
+        }
+    }
+
+    /**
+     * @return the cache holding the decoded pictures, e.g. to read its hit/miss/eviction counters
+     */
+    public ImageCache getImageCache(){
+        return imageCache;
+    }
+
+    /**
+     * @return the persistent store the previews are cached in
+     */
+    public ThumbnailCache getThumbnailCache(){
+        return thumbnailCache;
+    }
+
+    /**
+     * @return the persistent store of the metadata of previously opened files
+     */
+    public LibraryIndex getLibraryIndex(){
+        return libraryIndex;
+    }
+
+    /**
+     * Limits the size pictures are decoded to, usually the screen size. Zooming in further
+     * is handled by loading tiles of the original (see TileLayer).
+     * Only applies to handles created afterwards, pictures that are already cached keep their size.
+     * @param maxWidth maximum width of decoded pictures, 0 for no limit
+     * @param maxHeight maximum height of decoded pictures, 0 for no limit
+     */
+    public void setMaxDecodeSize(double maxWidth, double maxHeight){
+        this.maxDecodeWidth = maxWidth;
+        this.maxDecodeHeight = maxHeight;
+    }
+
+    /**
+     * Creates the handle of a picture that decodes through the image cache
+     * @param fileRef path of the picture file
+     * @return Picture that is not decoded yet
+     */
+    public Picture createPicture(String fileRef){
+        return new Picture(fileRef, imageCache, maxDecodeWidth, maxDecodeHeight);
+    }
+
+    /**
+     * Creates the handle of a preview that uses the thumbnail and preview caches
+     * @param fileRef path of the picture file
+     * @return PicturePreview that is not decoded yet
+     */
+    public PicturePreview createPreview(String fileRef){
+        return new PicturePreview(fileRef, thumbnailCache, previewCache);
+    }
+
+    /**
+     * Method to load a list of Files into Picture objects and store them locally.
+     * Pictures are only referenced here, decoding happens on first access.
      * @param pictureFiles List of files that will be converted to Pictures
      */
     public void loadPictures(List<File> pictureFiles){
-        pictures.clear();
-        previews.clear();
-        for(File picFile : pictureFiles){
-            pictures.add(new Picture(picFile.getPath()));
-            previews.add(new PicturePreview(picFile.getPath()));
+        synchronized (writeLock) {
+            clear();
+            catalog.ensureCapacity(pictureFiles.size());
+            for(File picFile : pictureFiles){
+                catalog.add(picFile.getPath(), picFile.length(), picFile.lastModified());
+            }
+            added(0);
+        }
+    }
+
+    /**
+     * Appends pictures nothing is known about yet besides their file
+     * @param newPictures pictures that will be appended
+     */
+    public void addPictures(List<Picture> newPictures){
+        addPictures(newPictures, null);
+    }
+
+    /**
+     * Appends pictures, used when loading incrementally.
+     * Only the path and file metadata of the handles are kept.
+     * @param newPictures pictures that will be appended
+     * @param metadata metadata of the pictures in the same order, null if it isn't known
+     */
+    public void addPictures(List<Picture> newPictures, List<PictureMetadata> metadata){
+        synchronized (writeLock) {
+            addPictures(newPictures, metadata, generation);
+        }
+    }
+
+    /**
+     * Appends pictures unless all pictures have been removed meanwhile, used by loaders running in the background.
+     * Can be called by several threads at once, each batch is added as a whole.
+     * @param newPictures pictures that will be appended
+     * @param metadata metadata of the pictures in the same order, null if it isn't known
+     * @param expectedGeneration value of getGeneration when the loader has started
+     * @return true if the pictures have been added, false if the handler has been cleared since
+     */
+    public boolean addPictures(List<Picture> newPictures, List<PictureMetadata> metadata, long expectedGeneration){
+        if(metadata != null && metadata.size() != newPictures.size()){
+            throw new IllegalArgumentException("Every picture needs exactly one metadata entry");
+        }
+        synchronized (writeLock) {
+            if(expectedGeneration != generation){
+                return false;
+            }
+            int from = catalog.size();
+            catalog.ensureCapacity(from + newPictures.size());
+            for(int i = 0; i < newPictures.size(); i++){
+                Picture picture = newPictures.get(i);
+                int index = catalog.add(picture.getFileRef(), picture.getFileSize(), picture.getLastModified());
+                if(metadata != null){
+                    catalog.setMetadata(index, metadata.get(i));
+                }
+            }
+            added(from);
+            return true;
+        }
+    }
+
+    /**
+     * @return amount of shown pictures, loaded pictures that are filtered out don't count
+     */
+    public int getPictureCount(){
+        return cursor.get().snapshot.size();
+    }
+
+    /**
+     * Looks up the position of a picture by its path
+     * @param fileRef path of the picture file
+     * @return ID of the picture or -1 if it isn't loaded or filtered out
+     */
+    public int indexOf(String fileRef){
+        return cursor.get().snapshot.indexOf(fileRef);
+    }
+
+    /**
+     * @param fileRef path of the picture file
+     * @return true if the picture is loaded, even if it is filtered out
+     */
+    public boolean contains(String fileRef){
+        return getCatalog().indexOf(fileRef) >= 0;
+    }
+
+    /**
+     * Removes a single picture, the current position stays on the same picture if possible
+     * @param fileRef path of the picture file, it may be filtered out
+     */
+    public void removePicture(String fileRef){
+        synchronized (writeLock) {
+            int index = catalog.indexOf(fileRef);
+            if(index < 0){
+                return;
+            }
+            Picture removed = pictureAt(catalog, index);
+            PicturePreview removedPreview = previewAt(catalog, index);
+            int removedID = order.hide(index);
+            catalog.remove(index);
+            order.removed(index);
+            imageCache.invalidate(removed);
+            previewCache.invalidate(removedPreview);
+            // Keep pointing at the same picture, or at the one before the removed one so next continues after it
+            Snapshot next = publish(pictureID -> removedID >= 0 && removedID <= pictureID ? pictureID - 1 : pictureID);
+            previewExecutor.execute(() -> previews.removed(next, removedID));
+        }
+    }
+
+    /**
+     * @param picture handle of a picture file
+     * @return true if the picture is loaded with the same file size and modification time
+     */
+    public boolean isUpToDate(Picture picture){
+        PictureCatalog current = getCatalog();
+        int index = current.indexOf(picture.getFileRef());
+        return index >= 0 && current.getFileSize(index) == picture.getFileSize()
+                && current.getLastModified(index) == picture.getLastModified();
+    }
+
+    /**
+     * Replaces the picture with the same path whose file has changed, dropping the outdated decoded images.
+     * The picture moves if its sort key has changed.
+     * @param picture new handle of the picture, it may be filtered out
+     * @param metadata metadata of the changed file, null if it isn't known
+     */
+    public void replacePicture(Picture picture, PictureMetadata metadata){
+        synchronized (writeLock) {
+            int index = catalog.indexOf(picture.getFileRef());
+            if(index < 0){
+                return;
+            }
+            Picture replaced = pictureAt(catalog, index);
+            PicturePreview replacedPreview = previewAt(catalog, index);
+            catalog.set(index, picture.getFileRef(), picture.getFileSize(), picture.getLastModified());
+            if(metadata != null){
+                catalog.setMetadata(index, metadata);
+            }
+            imageCache.invalidate(replaced);
+            previewCache.invalidate(replacedPreview);
+
+            int oldID = order.hide(index);
+            int newID = order.insert(index);
+            Snapshot next = publish(pictureID -> followMove(pictureID, oldID, newID));
+            if(oldID >= 0 && oldID == newID){
+                previewExecutor.execute(() -> previews.replaced(next, oldID));
+            } else {
+                previewExecutor.execute(() -> previews.moved(next, oldID, newID));
+            }
+        }
+    }
+
+    /**
+     * Removes all pictures and previews and resets the current position
+     */
+    public void clear(){
+        synchronized (writeLock) {
+            PictureOrder removedOrder = order;
+            catalog = new PictureCatalog();
+            order = new PictureOrder(catalog);
+            order.apply(removedOrder.getSortMode(), removedOrder.isDescending(), removedOrder.getFilter());
+            generation++;
+            prefetcher.cancel();
+            imageCache.clear();
+            previewCache.clear();
+            Snapshot next = publish(pictureID -> -1);
+            previewExecutor.execute(() -> previews.cleared(next));
         }
     }
 
     /**
      * Determines the next picture that should be displayed.
      * Wraps around to the beginning of the list if picture after the last one is requested.
-     * @return Picture object that should be displayed next from the ArrayList pictures
+     * @return Picture object that should be displayed next from the loaded pictures
      * @throws NoPicturesLoadedException Exception for when no pictures are loaded yet but tried to access them
      */
     public Picture getNextPicture() throws NoPicturesLoadedException {
-        if(pictures.size() <= 0){
+        return move(1);
+    }
+
+    /**
+     * Returns the picture getNextPicture would return, without moving to it
+     * @return Picture object that follows the current one
+     * @throws NoPicturesLoadedException Exception for when no pictures are loaded yet but tried to access them
+     */
+    public Picture peekNextPicture() throws NoPicturesLoadedException {
+        Cursor current = cursor.get();
+        if(current.snapshot.size() <= 0){
             throw new NoPicturesLoadedException();
         }
         else {
-            currentPictureID = (currentPictureID + 1) % pictures.size();
-            return pictures.get(currentPictureID);
+            return current.snapshot.pictureAt((current.pictureID + 1) % current.snapshot.size());
         }
     }
 
     /**
      * Determines the previous picture that should be displayed.
      * Wraps around to the end of the list if picture before the first one is requested.
-     * @return Picture object that should be displayed next from the ArrayList pictures
+     * @return Picture object that should be displayed next from the loaded pictures
      * @throws NoPicturesLoadedException Exception for when no pictures are loaded yet but tried to access them
      */
     public Picture getPrevPicture() throws NoPicturesLoadedException{
-        if(pictures.size() <= 0){
+        return move(-1);
+    }
+
+    /**
+     * Method to acquire picture by the list-ID of a picture.
+     * Only looks the picture up, neither the current position nor the prefetching follow it.
+     * @param pictureID the ID of the Picture that is being requested, its position in the current order
+     * @return Picture on position of the provided ID
+     * @throws NoPicturesLoadedException Exception for when no pictures are loaded yet but tried to access them
+     */
+    public Picture getPictureByID(int pictureID) throws NoPicturesLoadedException{
+        Snapshot current = cursor.get().snapshot;
+        if(current.size() <= 0){
             throw new NoPicturesLoadedException();
         }
         else {
-            currentPictureID = (currentPictureID + pictures.size() - 1) % pictures.size();
-            return pictures.get(currentPictureID);
+            return current.pictureAt(pictureID);
         }
     }
 
     /**
-     * Method to acquire picture by the list-ID of a picture
-     * @param pictureID the ID of the Picture that is being requested
-     * @return Picture from the pictures ArrayList on position of the provided ID
-     * @throws NoPicturesLoadedException Exception for when no pictures are loaded yet but tried to access them
+     * Moves to the picture with the given path, e.g. the one selected in the previews.
+     * Unlike an ID the path stays valid while other pictures are added or removed.
+     * @param fileRef path of the picture file
+     * @return the Picture, null if it isn't loaded or filtered out
      */
-    public Picture getPictureByID(int pictureID) throws NoPicturesLoadedException{
-        if(pictures.size() <= 0){
+    public Picture getPictureByRef(String fileRef){
+        Cursor moved = cursor.updateAndGet(c -> c.moveTo(c.snapshot.indexOf(fileRef)));
+        if(moved.pictureID < 0 || moved.pictureID != moved.snapshot.indexOf(fileRef)){
+            return null;
+        }
+        prefetcher.prefetch(moved.snapshot.pictures, moved.pictureID, true);
+        return moved.snapshot.pictureAt(moved.pictureID);
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Moves the cursor by the given amount of pictures, wrapping around at both ends
+     */
+    private Picture move(int step) throws NoPicturesLoadedException {
+        Cursor moved = cursor.updateAndGet(c -> c.moveBy(step));
+        if(moved.pictureID < 0){
             throw new NoPicturesLoadedException();
         }
-        else {
-            return pictures.get(pictureID);
+        prefetcher.prefetch(moved.snapshot.pictures, moved.pictureID, step > 0);
+        return moved.snapshot.pictureAt(moved.pictureID);
+    }
+
+    /**
+     * Publishes the catalog and order as a new snapshot and moves the cursor into it, both in one atomic step.
+     * Must be called while holding the write lock, the changes of the previews have to be reported afterwards.
+     * @param moveCursor maps a picture ID of the previous snapshot to the one of the same picture in the new one.
+     *                   It is called again if the cursor is moved by another thread at the same time.
+     * @return the new snapshot
+     */
+    private Snapshot publish(IntUnaryOperator moveCursor){
+        Snapshot next = snapshot();
+        cursor.updateAndGet(c -> new Cursor(next, c.pictureID >= 0 ? moveCursor.applyAsInt(c.pictureID) : -1));
+        return next;
+    }
+
+    /**
+     * @return read only snapshot of the catalog and order as they are now
+     */
+    private Snapshot snapshot(){
+        PictureCatalog catalogSnapshot = catalog.snapshot();
+        return new Snapshot(catalogSnapshot, order.snapshot(catalogSnapshot));
+    }
+
+    /**
+     * Adds the entries appended to the catalog to the order and reports where they are shown
+     * @param from catalog index of the first new entry
+     */
+    private void added(int from){
+        int[] addedAt = order.added(from);
+        Snapshot next = publish(pictureID -> {
+            // Positions are ascending, so the current one has moved by all that were added before it
+            for(int position : addedAt){
+                if(position <= pictureID){
+                    pictureID++;
+                }
+            }
+            return pictureID;
+        });
+        previewExecutor.execute(() -> previews.added(next, addedAt));
+    }
+
+    /**
+     * @return the ID a picture has after another one has moved from oldID to newID, -1 meaning it's filtered out.
+     * The moved picture itself is followed, if it disappears the one before it becomes the current one.
+     */
+    private static int followMove(int pictureID, int oldID, int newID){
+        if(oldID >= 0 && pictureID == oldID){
+            return newID >= 0 ? newID : oldID - 1;
+        }
+        if(oldID >= 0 && oldID < pictureID){
+            pictureID--;
+        }
+        if(newID >= 0 && newID <= pictureID){
+            pictureID++;
+        }
+        return pictureID;
+    }
+
+    private Picture pictureAt(PictureCatalog source, int index){
+        Picture picture = new Picture(source.getFileRef(index), source.getFileSize(index),
+                source.getLastModified(index), imageCache, maxDecodeWidth, maxDecodeHeight);
+        // The preview is the low resolution level that is shown while a picture is decoding
+        picture.setLowResolution(previewAt(source, index));
+        picture.setMetadata(source.getMetadata(index));
+        return picture;
+    }
+
+    private PicturePreview previewAt(PictureCatalog source, int index){
+        PicturePreview preview = new PicturePreview(source.getFileRef(index), source.getFileSize(index),
+                source.getLastModified(index), thumbnailCache, previewCache);
+        preview.setMetadata(source.getMetadata(index));
+        return preview;
+    }
+
+    /**
+     * The loaded pictures as published by a change: read only snapshots of the catalog and the order,
+     * which can be read by any number of threads
+     */
+    private final class Snapshot {
+        private final PictureCatalog catalog;
+        private final PictureOrder order;
+        private final List<Picture> pictures = new PictureList(this);
+
+        private Snapshot(PictureCatalog catalog, PictureOrder order) {
+            this.catalog = catalog;
+            this.order = order;
+        }
+
+        private int size() {
+            return order.size();
+        }
+
+        private int indexOf(String fileRef) {
+            return order.positionOf(catalog.indexOf(fileRef));
+        }
+
+        /**
+         * Creates the handle of the picture at a position of the order, linked to its preview
+         */
+        private Picture pictureAt(int pictureID) {
+            return PictureHandler.this.pictureAt(catalog, order.get(pictureID));
+        }
+
+        /**
+         * Creates the handle of the preview of the picture at a position of the order
+         */
+        private PicturePreview previewAt(int pictureID) {
+            return PictureHandler.this.previewAt(catalog, order.get(pictureID));
+        }
+    }
+
+    /**
+     * Position of the current picture together with the snapshot it refers to, replaced as a whole
+     */
+    private static final class Cursor {
+        private final Snapshot snapshot;
+        private final int pictureID;
+
+        private Cursor(Snapshot snapshot, int pictureID) {
+            this.snapshot = snapshot;
+            this.pictureID = pictureID;
+        }
+
+        private Cursor moveBy(int step) {
+            int size = snapshot.size();
+            return size > 0 ? new Cursor(snapshot, Math.floorMod(pictureID + step, size)) : this;
+        }
+
+        private Cursor moveTo(int pictureID) {
+            return pictureID >= 0 ? new Cursor(snapshot, pictureID) : this;
+        }
+    }
+
+    /**
+     * Read only view of the pictures of a snapshot
+     */
+    private static final class PictureList extends AbstractList<Picture> implements RandomAccess {
+        private final Snapshot snapshot;
+
+        private PictureList(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public Picture get(int index) {
+            return snapshot.pictureAt(index);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+    }
+
+    /**
+     * Read only observable view of the previews, the PictureHandler reports its changes.
+     * Shows the snapshot of the last reported change, so it always matches the changes its listeners have seen.
+     * Only accessed on the thread the changes are reported on.
+     */
+    private final class PreviewList extends ObservableListBase<PicturePreview> implements RandomAccess {
+        private Snapshot shown;
+
+        private PreviewList(Snapshot shown) {
+            this.shown = shown;
+        }
+
+        @Override
+        public PicturePreview get(int index) {
+            return shown.previewAt(index);
+        }
+
+        @Override
+        public int size() {
+            return shown.size();
+        }
+
+        private void added(Snapshot next, int[] positions) {
+            shown = next;
+            if (positions.length == 0) {
+                return;
+            }
+            beginChange();
+            // Consecutive positions are reported as one range
+            int start = 0;
+            for (int i = 1; i <= positions.length; i++) {
+                if (i == positions.length || positions[i] != positions[i - 1] + 1) {
+                    nextAdd(positions[start], positions[i - 1] + 1);
+                    start = i;
+                }
+            }
+            endChange();
+        }
+
+        private void removed(Snapshot next, int index) {
+            PicturePreview removed = index >= 0 ? shown.previewAt(index) : null;
+            shown = next;
+            if (index < 0) {
+                return;
+            }
+            beginChange();
+            nextRemove(index, removed);
+            endChange();
+        }
+
+        private void replaced(Snapshot next, int index) {
+            PicturePreview old = shown.previewAt(index);
+            shown = next;
+            beginChange();
+            nextSet(index, old);
+            endChange();
+        }
+
+        /**
+         * Reports that a preview has moved from one position to another, either of them -1 if it's filtered out
+         */
+        private void moved(Snapshot next, int oldIndex, int newIndex) {
+            PicturePreview removed = oldIndex >= 0 ? shown.previewAt(oldIndex) : null;
+            shown = next;
+            if (oldIndex < 0 && newIndex < 0) {
+                return;
+            }
+            beginChange();
+            if (oldIndex >= 0) {
+                nextRemove(oldIndex, removed);
+            }
+            if (newIndex >= 0) {
+                nextAdd(newIndex, newIndex + 1);
+            }
+            endChange();
+        }
+
+        private void permuted(Snapshot next, int[] permutation) {
+            shown = next;
+            if (permutation.length == 0) {
+                return;
+            }
+            beginChange();
+            nextPermutation(0, permutation.length, permutation);
+            endChange();
+        }
+
+        /**
+         * Reports that all previews have been replaced, e.g. by a different filter
+         */
+        private void reordered(Snapshot next) {
+            Snapshot previous = shown;
+            shown = next;
+            beginChange();
+            if (previous.size() > 0) {
+                nextRemove(0, previewsOf(previous));
+            }
+            if (size() > 0) {
+                nextAdd(0, size());
+            }
+            endChange();
+        }
+
+        private void cleared(Snapshot next) {
+            Snapshot previous = shown;
+            shown = next;
+            if (previous.size() == 0) {
+                return;
+            }
+            beginChange();
+            nextRemove(0, previewsOf(previous));
+            endChange();
+        }
+
+        /**
+         * @return list of removed previews, their handles are only created if a listener asks for them
+         */
+        private List<PicturePreview> previewsOf(Snapshot source) {
+            return new AbstractList<>() {
+                @Override
+                public PicturePreview get(int index) {
+                    return source.previewAt(index);
+                }
+
+                @Override
+                public int size() {
+                    return source.size();
+                }
+            };
         }
     }
     //------ End Methods ------//
 }
-
@@ -0,0 +1,156 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.data.LibraryIndex;
+import de.thm.tlf.photoViewer.data.Picture;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Task that loads a list of files into the PictureHandler off the JavaFX application thread.
+ * The picture handles are created in parallel by a BatchProcessor and
+ * added to the PictureHandler in batches right from the task's thread, keeping the order of the supplied files.
+ * Previews are not decoded here but by the preview strip once they become visible.
+ * The metadata of every file is taken from the LibraryIndex if the file hasn't changed since it
+ * has been indexed, otherwise it is read from the file header (see MetadataReader) and the index is updated once the task succeeds.
+ * Cancelling the task stops all pending decodes, batches of a cancelled task are dropped, as are batches
+ * that would end up in the PictureHandler after it has been cleared for another load.
+ */
+public class PictureLoadTask extends Task<Void> {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int BATCH_SIZE = 64;
+    private static final long BATCH_INTERVAL_MS = 50;
+
+    private final List<File> pictureFiles;
+    private final PictureHandler picHandler;
+    private final Runnable onPublished;
+    private final long generation;
+
+    private final LibraryIndex.Session indexSession;
+    private final BatchProcessor processor = new BatchProcessor();
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param pictureFiles files that will be loaded, in display order
+     * @param picHandler handler the loaded pictures are added to, only as long as it isn't cleared
+     * @param onPublished called on the JavaFX application thread after every batch
+     *                    has been added to the handler
+     */
+    public PictureLoadTask(List<File> pictureFiles, PictureHandler picHandler, Runnable onPublished) {
+        this.pictureFiles = List.copyOf(pictureFiles);
+        this.picHandler = picHandler;
+        this.onPublished = onPublished;
+        this.indexSession = picHandler.getLibraryIndex().openSession();
+        this.generation = picHandler.getGeneration();
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    @Override
+    protected Void call() {
+        int total = pictureFiles.size();
+        LoadedPicture[] loaded = new LoadedPicture[total];
+        List<LoadedPicture> pending = new ArrayList<>();
+        int[] nextToPublish = {0};
+        long[] lastPublish = {System.currentTimeMillis()};
+        boolean complete = processor.run(total, this::load, (result, done, all) -> {
+            loaded[result.index] = result;
+            updateProgress(done, all);
+
+            // Only publish in file order, later pictures wait for the earlier ones
+            while (nextToPublish[0] < total && loaded[nextToPublish[0]] != null) {
+                pending.add(loaded[nextToPublish[0]]);
+                loaded[nextToPublish[0]++] = null;
+            }
+            long now = System.currentTimeMillis();
+            if (!pending.isEmpty() && (pending.size() >= BATCH_SIZE
+                    || now - lastPublish[0] >= BATCH_INTERVAL_MS || done == all)) {
+                publish(pending);
+                pending.clear();
+                lastPublish[0] = now;
+            }
+        });
+        if (complete && !isCancelled()) {
+            indexSession.commit();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        processor.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Creates the picture handle of a single file, which reads its size and modification time, and looks up its metadata.
+     * The first picture is decoded right away as it will be displayed first. Runs on a worker.
+     * @return the loaded picture, null if it has been skipped as the task has been cancelled
+     */
+    private LoadedPicture load(int index) {
+        if (processor.isCancelled()) {
+            return null;
+        }
+        File file = pictureFiles.get(index);
+        Picture picture = picHandler.createPicture(file.getPath());
+        PictureMetadata metadata = indexSession.metadataOf(file.toPath(), picture.getFileSize(),
+                picture.getLastModified());
+        if (index == 0 && !processor.isCancelled()) {
+            picture.getImage();
+        }
+        return new LoadedPicture(index, picture, metadata);
+    }
+
+    /**
+     * Adds a batch to the handler, unless the task has been cancelled meanwhile
+     */
+    private void publish(List<LoadedPicture> batch) {
+        if (isCancelled()) {
+            return;
+        }
+        List<Picture> pictures = new ArrayList<>(batch.size());
+        List<PictureMetadata> metadata = new ArrayList<>(batch.size());
+        for (LoadedPicture lp : batch) {
+            pictures.add(lp.picture);
+            metadata.add(lp.metadata);
+        }
+        if (picHandler.addPictures(pictures, metadata, generation)) {
+            Platform.runLater(() -> {
+                if (!isCancelled()) {
+                    onPublished.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Result of loading a single file
+     */
+    private static final class LoadedPicture {
+        private final int index;
+        private final Picture picture;
+        private final PictureMetadata metadata;
+
+        private LoadedPicture(int index, Picture picture, PictureMetadata metadata) {
+            this.index = index;
+            this.picture = picture;
+            this.metadata = metadata;
+        }
+    }
+    //------ End Methods ------//
+}
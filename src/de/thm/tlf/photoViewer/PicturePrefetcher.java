@@ -0,0 +1,110 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import de.thm.tlf.photoViewer.data.Picture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes the pictures around the current position in the background, so that
+ * navigating to a neighbour only hits an already decoded image.
+ * More pictures are prefetched in the current direction of travel than against it.
+ * A new request supersedes all prefetches that haven't started yet.
+ */
+public class PicturePrefetcher {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private final int ahead;
+    private final int behind;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            // Prefetching must not slow down decoding of the picture that is displayed
+            new DaemonThreadFactory("picture-prefetcher", Thread.MIN_PRIORITY));
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param ahead amount of pictures prefetched in the direction of travel
+     * @param behind amount of pictures prefetched against the direction of travel
+     */
+    public PicturePrefetcher(int ahead, int behind) {
+        this.ahead = ahead;
+        this.behind = behind;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Schedules the neighbours of the current picture for decoding, nearest ones first
+     * @param pictures all loaded pictures
+     * @param currentID position of the picture that is displayed now
+     * @param forward true if the user is moving towards higher IDs
+     */
+    public void prefetch(List<Picture> pictures, int currentID, boolean forward) {
+        int size = pictures.size();
+        if (size <= 1 || currentID < 0) {
+            return;
+        }
+        int step = forward ? 1 : -1;
+        Picture current = pictures.get(currentID);
+        // Nearest pictures first, alternating between both directions
+        List<Picture> toDecode = new ArrayList<>(ahead + behind);
+        for (int distance = 1; distance <= Math.max(ahead, behind); distance++) {
+            if (distance <= ahead) {
+                addIfMissing(toDecode, current, pictures.get(Math.floorMod(currentID + distance * step, size)));
+            }
+            if (distance <= behind) {
+                addIfMissing(toDecode, current, pictures.get(Math.floorMod(currentID - distance * step, size)));
+            }
+        }
+        long requestGeneration = generation.incrementAndGet();
+        for (Picture picture : toDecode) {
+            executor.execute(() -> {
+                if (generation.get() == requestGeneration && !picture.isDecoded()) {
+                    picture.getImage();
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops all prefetches that haven't started yet
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return amount of prefetches waiting to be started, including superseded ones that will be skipped
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Adds the picture unless it's the current one or already in the list,
+     * which happens for small collections that wrap around
+     */
+    private static void addIfMissing(List<Picture> toDecode, Picture current, Picture picture) {
+        if (!picture.equals(current) && !toDecode.contains(picture)) {
+            toDecode.add(picture);
+        }
+    }
+    //------ End Methods ------//
+}
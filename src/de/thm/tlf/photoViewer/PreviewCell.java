@@ -0,0 +1,109 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import de.thm.tlf.photoViewer.data.PicturePreview;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import de.thm.tlf.photoViewer.metrics.ViewerMetrics;
+import javafx.application.Platform;
+import javafx.scene.control.ListCell;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Cell of the preview strip.
+ * The ListView only creates cells for the visible previews and reuses them while scrolling,
+ * each cell decodes its preview in the background when it gets a new item and drops
+ * the image again when it is recycled for another one.
+ * While a preview is loading, a placeholder with the aspect ratio of the picture is shown if its size is known.
+ */
+public class PreviewCell extends ListCell<PicturePreview> {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final ExecutorService THUMBNAIL_LOADER = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("preview-loader"));
+
+    static {
+        ViewerMetrics.getInstance().registerQueue("preview-loader", ((ThreadPoolExecutor) THUMBNAIL_LOADER).getQueue()::size);
+    }
+
+    private final ImageView imageView = new ImageView();
+    private final Rectangle placeholder = new Rectangle();
+    private Future<?> pendingLoad;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    public PreviewCell() {
+        imageView.setFitWidth(PicturePreview.THUMBNAIL_SIZE);
+        imageView.setFitHeight(PicturePreview.THUMBNAIL_SIZE);
+        imageView.setSmooth(true);
+        imageView.setPreserveRatio(true);
+        placeholder.setFill(Color.gray(0.85));
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    @Override
+    protected void updateItem(PicturePreview preview, boolean empty) {
+        super.updateItem(preview, empty);
+        // The previous item is no longer shown, so its image isn't needed anymore
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+            pendingLoad = null;
+        }
+        imageView.setImage(null);
+
+        if (empty || preview == null) {
+            setGraphic(null);
+            return;
+        }
+        if (preview.isDecoded()) {
+            imageView.setImage(preview.getImage());
+            setGraphic(imageView);
+        } else {
+            setGraphic(sizePlaceholder(preview.getMetadata()) ? placeholder : imageView);
+            pendingLoad = THUMBNAIL_LOADER.submit(() -> {
+                Image image = preview.getImage();
+                Platform.runLater(() -> {
+                    // Only show the image if the cell hasn't been reused meanwhile
+                    if (getItem() == preview) {
+                        imageView.setImage(image);
+                        setGraphic(imageView);
+                    }
+                });
+            });
+        }
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Sizes the placeholder like the preview will be, fitting into THUMBNAIL_SIZE in upright orientation
+     * @return false if the size of the picture isn't known
+     */
+    private boolean sizePlaceholder(PictureMetadata metadata) {
+        double width = metadata.getDisplayWidth();
+        double height = metadata.getDisplayHeight();
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        double scale = Math.min(1, PicturePreview.THUMBNAIL_SIZE / Math.max(width, height));
+        placeholder.setWidth(width * scale);
+        placeholder.setHeight(height * scale);
+        return true;
+    }
+    //------ End Methods ------//
+}
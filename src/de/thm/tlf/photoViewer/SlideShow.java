@@ -0,0 +1,223 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import de.thm.tlf.photoViewer.data.Picture;
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.value.ObservableBooleanValue;
+import javafx.beans.value.ObservableDoubleValue;
+import javafx.scene.image.Image;
+import javafx.util.Duration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+/**
+ * Slide show that advances through the pictures of the PictureHandler.
+ * Timing is done with a PauseTransition on the JavaFX application thread, so it can be
+ * started and stopped any number of times and interval changes apply to the running wait.
+ * The next picture is only shown once it is decoded, a slow decode delays the slide show
+ * instead of skipping pictures. The decoded image is handed on with the picture, so a picture
+ * too large for the image cache isn't decoded a second time to show it. A hold (e.g. an animation that hasn't finished its loop yet) delays it as well.
+ * All methods have to be called on the JavaFX application thread.
+ */
+public class SlideShow {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("slide-show-decoder"));
+
+    private final PictureHandler picHandler;
+    private final ObservableDoubleValue secondsPerPicture;
+    private final BiConsumer<Picture, Image> onAdvance;
+
+    private final PauseTransition pause = new PauseTransition();
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(false);
+    // Incremented on every stop, so decodes that finish afterwards are ignored
+    private long generation = 0;
+    private ObservableBooleanValue hold;
+    // Waits for the hold to be released, null while not waiting
+    private InvalidationListener holdListener;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param picHandler handler providing the pictures
+     * @param secondsPerPicture time every picture is shown, changes are applied immediately
+     * @param onAdvance called with the new picture and its decoded image (null if it couldn't be decoded)
+     *                  every time the slide show advances
+     */
+    public SlideShow(PictureHandler picHandler, ObservableDoubleValue secondsPerPicture,
+                     BiConsumer<Picture, Image> onAdvance) {
+        this.picHandler = picHandler;
+        this.secondsPerPicture = secondsPerPicture;
+        this.onAdvance = onAdvance;
+
+        pause.setOnFinished(e -> advance());
+        secondsPerPicture.addListener(observable -> applyInterval());
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Starts the slide show, the first advance happens after one interval
+     */
+    public void start() {
+        if (running.get()) {
+            return;
+        }
+        running.set(true);
+        waitForNextPicture();
+    }
+
+    /**
+     * Stops the slide show, a picture that is still being decoded won't be shown anymore
+     */
+    public void stop() {
+        running.set(false);
+        generation++;
+        pause.stop();
+        releaseHoldListener();
+    }
+
+    /**
+     * Sets a condition that delays advancing, once the interval has passed the slide show waits until it's false
+     * @param hold true while the current picture should stay, null for none
+     */
+    public void setHold(ObservableBooleanValue hold) {
+        releaseHoldListener();
+        this.hold = hold;
+    }
+
+    /**
+     * @return property that is true while the slide show is running
+     */
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Starts waiting one full interval
+     */
+    private void waitForNextPicture() {
+        pause.setDuration(interval());
+        pause.playFromStart();
+    }
+
+    /**
+     * Restarts a running wait with the new interval, keeping the time that has already passed
+     */
+    private void applyInterval() {
+        if (!running.get() || pause.getStatus() != Animation.Status.RUNNING) {
+            return;
+        }
+        Duration elapsed = pause.getCurrentTime();
+        pause.stop();
+        if (elapsed.greaterThanOrEqualTo(interval())) {
+            advance();
+        } else {
+            pause.setDuration(interval());
+            pause.playFrom(elapsed);
+        }
+    }
+
+    /**
+     * Decodes the next picture in the background and shows it once it's done, a cached picture is done at once
+     */
+    private void advance() {
+        if (hold != null && hold.get()) {
+            waitForHold();
+            return;
+        }
+        Picture next;
+        try {
+            next = picHandler.peekNextPicture();
+        } catch (NoPicturesLoadedException npl) {
+            stop();
+            return;
+        }
+        long requestGeneration = generation;
+        CompletableFuture.supplyAsync(next::getImage, DECODER).thenAccept(image -> Platform.runLater(() -> {
+            if (running.get() && generation == requestGeneration) {
+                show(next, image);
+            }
+        }));
+    }
+
+    /**
+     * Advances as soon as the hold is released
+     */
+    private void waitForHold() {
+        if (holdListener != null) {
+            return;
+        }
+        holdListener = observable -> {
+            if (!hold.get()) {
+                releaseHoldListener();
+                advance();
+            }
+        };
+        hold.addListener(holdListener);
+    }
+
+    private void releaseHoldListener() {
+        if (holdListener != null) {
+            hold.removeListener(holdListener);
+            holdListener = null;
+        }
+    }
+
+    /**
+     * Moves the PictureHandler to the decoded picture, reports it and starts the next wait.
+     * If the user has navigated or the pictures have changed during the decode, the picture
+     * that follows now is decoded instead.
+     * @param next the picture that followed the current one when the decode was started
+     * @param image its decoded image
+     */
+    private void show(Picture next, Image image) {
+        try {
+            if (!next.equals(picHandler.peekNextPicture())) {
+                advance();
+                return;
+            }
+        } catch (NoPicturesLoadedException npl) {
+            stop();
+            return;
+        }
+        // Moves to the file rather than one step, pictures may be added or removed by other threads meanwhile
+        Picture shown = picHandler.getPictureByRef(next.getFileRef());
+        if (shown == null) {
+            advance();
+            return;
+        }
+        onAdvance.accept(shown, image);
+        waitForNextPicture();
+    }
+
+    /**
+     * @return the current interval, at least one millisecond
+     */
+    private Duration interval() {
+        return Duration.seconds(Math.max(0.001, secondsPerPicture.get()));
+    }
+    //------ End Methods ------//
+}
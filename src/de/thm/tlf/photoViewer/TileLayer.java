@@ -0,0 +1,261 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import de.thm.tlf.photoViewer.data.Picture;
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+import de.thm.tlf.photoViewer.io.ImageOrientation;
+import de.thm.tlf.photoViewer.io.MetadataReader;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import de.thm.tlf.photoViewer.metrics.ViewerMetrics;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Layer placed on top of the center image that shows full resolution tiles of the original file.
+ * The center image is only decoded up to screen size, once the user zooms in further than that
+ * the tiles covering the visible part are decoded from the original (using ImageIO source regions)
+ * and drawn over it. Tiles outside of the viewport are neither decoded nor kept in the scene.
+ * Tiles are cut from the pixels as stored in the file and rotated into place according to its EXIF orientation.
+ * All methods have to be called on the JavaFX application thread.
+ */
+public class TileLayer extends Pane {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int TILE_SIZE = 512;
+    private static final int MAX_CACHED_TILES = 64;
+
+    private static final ExecutorService TILE_LOADER = Executors.newFixedThreadPool(2,
+            new DaemonThreadFactory("tile-loader"));
+
+    static {
+        ViewerMetrics.getInstance().registerQueue("tile-loader", ((ThreadPoolExecutor) TILE_LOADER).getQueue()::size);
+    }
+
+    private Picture picture;
+    // Size and orientation of the original, null until they have been read
+    private PictureMetadata original;
+    // Incremented for every new picture, so tiles of the previous one are dropped
+    private long generation = 0;
+
+    private final LinkedHashMap<Long, Image> tileCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Image> eldest) {
+            return size() > MAX_CACHED_TILES;
+        }
+    };
+    private final Map<Long, ImageView> shownTiles = new HashMap<>();
+    private final Map<Long, Future<?>> pendingTiles = new HashMap<>();
+
+    private Bounds lastVisible;
+    private double lastDisplayWidth;
+    private double lastDecodedWidth;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    public TileLayer() {
+        setMouseTransparent(true);
+        setManaged(false);
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Sets the picture whose tiles are shown, dropping all tiles of the previous one
+     * @param newPicture the displayed picture, null if none
+     */
+    public void setPicture(Picture newPicture) {
+        if (newPicture == picture) {
+            return;
+        }
+        generation++;
+        picture = newPicture;
+        original = null;
+        pendingTiles.values().forEach(f -> f.cancel(false));
+        pendingTiles.clear();
+        tileCache.clear();
+        shownTiles.clear();
+        getChildren().clear();
+        if (newPicture == null) {
+            return;
+        }
+        long requestGeneration = generation;
+        Path file = Paths.get(newPicture.getFileRef());
+        TILE_LOADER.execute(() -> {
+            PictureMetadata metadata = MetadataReader.read(file);
+            Platform.runLater(() -> {
+                if (requestGeneration == generation && metadata != null && metadata.getWidth() > 0) {
+                    original = metadata;
+                    refresh();
+                }
+            });
+        });
+    }
+
+    /**
+     * Shows the tiles needed for the visible part of the picture
+     * @param visible part of the layer that is visible in the viewport, in local coordinates
+     * @param displayWidth width the picture is displayed with
+     * @param decodedWidth width of the (possibly scaled down) decoded picture shown below the layer
+     */
+    public void update(Bounds visible, double displayWidth, double decodedWidth) {
+        lastVisible = visible;
+        lastDisplayWidth = displayWidth;
+        lastDecodedWidth = decodedWidth;
+        refresh();
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Re-applies the last update, e.g. once a tile has been loaded
+     */
+    private void refresh() {
+        if (picture == null || original == null || lastVisible == null || lastDisplayWidth <= 0) {
+            return;
+        }
+        // Tiles are only needed if the decoded picture is shown larger than its resolution allows
+        if (lastDisplayWidth <= lastDecodedWidth || lastDecodedWidth >= original.getDisplayWidth()) {
+            showOnly(Collections.emptySet());
+            return;
+        }
+        double scale = lastDisplayWidth / original.getDisplayWidth();
+        int width = original.getWidth();
+        int height = original.getHeight();
+        int orientation = original.getOrientation();
+        // The visible part in pixels of the stored original, which the tile grid is based on
+        Rectangle2D visible = ImageOrientation.toStored(new Rectangle2D(lastVisible.getMinX() / scale,
+                lastVisible.getMinY() / scale, lastVisible.getWidth() / scale, lastVisible.getHeight() / scale),
+                width, height, orientation);
+        int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int firstColumn = clamp((int) Math.floor(visible.getMinX() / TILE_SIZE), columns);
+        int lastColumn = clamp((int) Math.floor(visible.getMaxX() / TILE_SIZE), columns);
+        int firstRow = clamp((int) Math.floor(visible.getMinY() / TILE_SIZE), rows);
+        int lastRow = clamp((int) Math.floor(visible.getMaxY() / TILE_SIZE), rows);
+
+        Set<Long> visibleTiles = new HashSet<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                long key = key(column, row);
+                visibleTiles.add(key);
+                Image tile = tileCache.get(key);
+                if (tile != null) {
+                    show(key, tile, ImageOrientation.toDisplayed(tileBounds(column, row), width, height, orientation),
+                            scale);
+                } else if (!pendingTiles.containsKey(key)) {
+                    load(key, column, row);
+                }
+            }
+        }
+        showOnly(visibleTiles);
+    }
+
+    /**
+     * Places a loaded tile in the layer, scaled to the current display size
+     * @param displayed area the tile covers in pixels of the upright original
+     */
+    private void show(long key, Image tile, Rectangle2D displayed, double scale) {
+        ImageView view = shownTiles.get(key);
+        if (view == null) {
+            view = new ImageView(tile);
+            view.setSmooth(true);
+            shownTiles.put(key, view);
+            getChildren().add(view);
+        }
+        view.setX(displayed.getMinX() * scale);
+        view.setY(displayed.getMinY() * scale);
+        // Half a pixel of overlap avoids visible seams between the tiles
+        view.setFitWidth(displayed.getWidth() * scale + 0.5);
+        view.setFitHeight(displayed.getHeight() * scale + 0.5);
+    }
+
+    /**
+     * Removes all tiles that are not visible anymore and stops loading them
+     */
+    private void showOnly(Set<Long> visibleTiles) {
+        shownTiles.entrySet().removeIf(e -> {
+            if (!visibleTiles.contains(e.getKey())) {
+                getChildren().remove(e.getValue());
+                return true;
+            }
+            return false;
+        });
+        pendingTiles.entrySet().removeIf(e -> {
+            if (!visibleTiles.contains(e.getKey())) {
+                e.getValue().cancel(false);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Decodes a tile of the original file in the background
+     */
+    private void load(long key, int column, int row) {
+        long requestGeneration = generation;
+        Path file = Paths.get(picture.getFileRef());
+        Rectangle2D bounds = tileBounds(column, row);
+        int orientation = original.getOrientation();
+        pendingTiles.put(key, TILE_LOADER.submit(() -> {
+            DecodeResult result = ImageFileReader.decodeRegion(file, (int) bounds.getMinX(), (int) bounds.getMinY(),
+                    (int) bounds.getWidth(), (int) bounds.getHeight());
+            Image tile = result.isOk() ? ImageOrientation.apply(result.getImage(), orientation) : null;
+            Platform.runLater(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                pendingTiles.remove(key);
+                if (tile != null) {
+                    tileCache.put(key, tile);
+                    refresh();
+                }
+            });
+        }));
+    }
+
+    /**
+     * @return area of a tile in pixels of the stored original, tiles at the right and bottom edge may be smaller
+     */
+    private Rectangle2D tileBounds(int column, int row) {
+        int x = column * TILE_SIZE;
+        int y = row * TILE_SIZE;
+        return new Rectangle2D(x, y, Math.min(TILE_SIZE, original.getWidth() - x),
+                Math.min(TILE_SIZE, original.getHeight() - y));
+    }
+
+    /**
+     * @return value limited to the range 0 to (count - 1)
+     */
+    private static int clamp(int value, int count) {
+        return Math.max(0, Math.min(value, count - 1));
+    }
+
+    /**
+     * @return unique key of the tile in the given column and row
+     */
+    private static long key(int column, int row) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+    //------ End Methods ------//
+}
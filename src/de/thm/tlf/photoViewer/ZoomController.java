@@ -0,0 +1,191 @@
+package de.thm.tlf.photoViewer;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Bounds;
+import javafx.geometry.Insets;
+import javafx.geometry.Point2D;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Slider;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.ZoomEvent;
+
+/**
+ * Controls the zoom of the center image.
+ * A scale of 1 fits the picture into the viewport, the zoom slider maps linearly onto
+ * the exponent of the scale (every 25 steps double the size). Zooming via Ctrl + mouse wheel
+ * or pinch gestures keeps the point below the cursor in place.
+ * Any number of zoom requests within one frame result in a single relayout.
+ */
+public class ZoomController {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final double SLIDER_STEPS_PER_DOUBLING = 25;
+    private static final double WHEEL_ZOOM_FACTOR = 1.1;
+
+    private final ScrollPane scrollPane;
+    private final ImageView imageView;
+    private final Slider zoomSlider;
+    private final double neutralSliderValue;
+
+    private double scale = 1;
+    // Pending change, applied once per frame by the timer
+    private boolean dirty = false;
+    private Point2D pivotInScene;
+    private boolean updatingSlider = false;
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (dirty) {
+                dirty = false;
+                apply();
+            } else {
+                stop();
+            }
+        }
+    };
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * Connects slider, mouse wheel and pinch gestures to the zoom of the image view
+     * @param scrollPane scroll pane that contains the image view
+     * @param imageView the image view that is zoomed
+     * @param zoomSlider slider controlling the zoom, its initial value corresponds to a scale of 1
+     */
+    public ZoomController(ScrollPane scrollPane, ImageView imageView, Slider zoomSlider) {
+        this.scrollPane = scrollPane;
+        this.imageView = imageView;
+        this.zoomSlider = zoomSlider;
+        this.neutralSliderValue = zoomSlider.getValue();
+
+        zoomSlider.valueProperty().addListener((observable, oldVal, newVal) -> {
+            if (!updatingSlider) {
+                requestScale(sliderToScale(newVal.doubleValue()), null);
+            }
+        });
+        scrollPane.addEventFilter(ScrollEvent.SCROLL, e -> {
+            if (e.isControlDown() && e.getDeltaY() != 0) {
+                double factor = e.getDeltaY() > 0 ? WHEEL_ZOOM_FACTOR : 1 / WHEEL_ZOOM_FACTOR;
+                zoomBy(factor, new Point2D(e.getSceneX(), e.getSceneY()));
+                e.consume();
+            }
+        });
+        scrollPane.addEventHandler(ZoomEvent.ZOOM, e -> {
+            zoomBy(e.getZoomFactor(), new Point2D(e.getSceneX(), e.getSceneY()));
+            e.consume();
+        });
+        // The scale is relative to the size of the scroll pane, so it has to be applied again when it's resized.
+        // Its outer size is used instead of the viewport, which shrinks and grows with the scroll bars.
+        scrollPane.layoutBoundsProperty().addListener(observable -> requestScale(scale, null));
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Multiplies the current scale, keeping the given point in place
+     * @param factor factor the scale is multiplied with
+     * @param pivotInScene point that stays in place, in scene coordinates
+     */
+    public void zoomBy(double factor, Point2D pivotInScene) {
+        double newScale = clampScale(scale * factor);
+        updatingSlider = true;
+        zoomSlider.setValue(scaleToSlider(newScale));
+        updatingSlider = false;
+        requestScale(newScale, pivotInScene);
+    }
+
+    /**
+     * @return the current scale, 1 meaning the picture fits the viewport
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Remembers the new scale and applies it with the next frame
+     * @param newScale the new scale
+     * @param pivot point that stays in place in scene coordinates, null for the center of the viewport
+     */
+    private void requestScale(double newScale, Point2D pivot) {
+        scale = newScale;
+        // The first pivot of a frame wins, later ones of the same gesture are close to it anyway
+        if (!dirty) {
+            pivotInScene = pivot;
+        }
+        dirty = true;
+        pulse.start();
+    }
+
+    /**
+     * Resizes the image view and scrolls so that the pivot stays in place
+     */
+    private void apply() {
+        Bounds viewport = scrollPane.getViewportBounds();
+        if (viewport.getWidth() <= 0 || viewport.getHeight() <= 0) {
+            return;
+        }
+        Bounds viewportInScene = scrollPane.localToScene(scrollPane.getLayoutBounds());
+        Point2D pivot = pivotInScene != null ? pivotInScene
+                : new Point2D(viewportInScene.getCenterX(), viewportInScene.getCenterY());
+
+        // Position of the pivot relative to the image, 0..1 in both directions
+        Bounds before = imageView.getLayoutBounds();
+        Point2D pivotInImage = imageView.sceneToLocal(pivot);
+        double relX = before.getWidth() > 0 ? (pivotInImage.getX() - before.getMinX()) / before.getWidth() : 0.5;
+        double relY = before.getHeight() > 0 ? (pivotInImage.getY() - before.getMinY()) / before.getHeight() : 0.5;
+
+        Insets insets = scrollPane.getInsets();
+        imageView.setFitWidth(Math.max(1, scrollPane.getWidth() - insets.getLeft() - insets.getRight()) * scale);
+        imageView.setFitHeight(Math.max(1, scrollPane.getHeight() - insets.getTop() - insets.getBottom()) * scale);
+        scrollPane.layout();
+
+        // Scroll so the same point of the image ends up below the pivot again.
+        // The viewport is read again, as scroll bars may have appeared or disappeared.
+        viewport = scrollPane.getViewportBounds();
+        Bounds after = imageView.getLayoutBounds();
+        Point2D target = scrollPane.getContent().sceneToLocal(imageView.localToScene(
+                after.getMinX() + relX * after.getWidth(), after.getMinY() + relY * after.getHeight()));
+        Bounds content = scrollPane.getContent().getLayoutBounds();
+        Point2D pivotInViewport = new Point2D(pivot.getX() - viewportInScene.getMinX(),
+                pivot.getY() - viewportInScene.getMinY());
+        scrollPane.setHvalue(toScrollValue(target.getX() - pivotInViewport.getX(), content.getWidth() - viewport.getWidth()));
+        scrollPane.setVvalue(toScrollValue(target.getY() - pivotInViewport.getY(), content.getHeight() - viewport.getHeight()));
+    }
+
+    /**
+     * Converts a scroll offset in pixels into a value of the scroll pane (range 0 to 1)
+     */
+    private static double toScrollValue(double offset, double scrollableSize) {
+        if (scrollableSize <= 0) {
+            return 0;
+        }
+        return Math.max(0, Math.min(1, offset / scrollableSize));
+    }
+
+    private double sliderToScale(double sliderValue) {
+        return Math.pow(2, (sliderValue - neutralSliderValue) / SLIDER_STEPS_PER_DOUBLING);
+    }
+
+    private double scaleToSlider(double value) {
+        return neutralSliderValue + SLIDER_STEPS_PER_DOUBLING * Math.log(value) / Math.log(2);
+    }
+
+    /**
+     * @return scale limited to what the slider can represent
+     */
+    private double clampScale(double value) {
+        return Math.max(sliderToScale(zoomSlider.getMin()), Math.min(sliderToScale(zoomSlider.getMax()), value));
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,61 @@
+package de.thm.tlf.photoViewer.concurrent;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the background threads of the viewer. They are daemon threads, so none of them keeps the
+ * JVM running once the window has been closed, and they are named after what they do, which is how
+ * they show up in thread dumps and the queue depths of the ViewerMetrics.
+ */
+public final class DaemonThreadFactory implements ThreadFactory {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private final String name;
+    private final int priority;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param name name of the created threads
+     */
+    public DaemonThreadFactory(String name) {
+        this(name, Thread.NORM_PRIORITY);
+    }
+
+    /**
+     * @param name name of the created threads
+     * @param priority priority of the created threads, see Thread.setPriority
+     */
+    public DaemonThreadFactory(String name, int priority) {
+        this.name = name;
+        this.priority = priority;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.setPriority(priority);
+        return t;
+    }
+
+    /**
+     * Runs a single piece of work, e.g. a Task, on a thread of its own
+     * @param name name of the thread
+     * @param work the work to run
+     * @return the started thread
+     */
+    public static Thread start(String name, Runnable work) {
+        Thread t = new DaemonThreadFactory(name).newThread(work);
+        t.start();
+        return t;
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,179 @@
+package de.thm.tlf.photoViewer.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups pictures whose PerceptualHash differs in at most a few bits, i.e. duplicates and near duplicates.
+ * The hashes are split into four 16 bit chunks and every chunk is put into its own bucket table (multi-index
+ * hashing). Two hashes that differ in at most d bits have at least one chunk that differs in at most d / 4 bits,
+ * so only the buckets of chunks within that distance have to be compared to find all similar pictures.
+ * For 100 000 random hashes and a distance of 10 bits this takes some 40 million comparisons instead of the
+ * five billion of comparing all pairs. A BK-tree hardly helps here, it still compared about 70 % of all pairs,
+ * as most distances of unrelated pictures are close to 32 bits.
+ * Pictures that are similar to each other end up in one group, also if they are only connected through others.
+ * Pictures are identified by small non negative ints, e.g. their position in a list.
+ * Not thread safe.
+ */
+public class DuplicateIndex {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = Long.SIZE / CHUNKS;
+
+    private final int maxDistance;
+    // Largest distance of a single chunk that has to be looked at
+    private final int chunkDistance;
+
+    // First entry of every bucket of every chunk and the next entry of the same bucket, -1 for none
+    private final int[][] buckets = new int[CHUNKS][1 << CHUNK_BITS];
+    private int[][] nextInBucket = new int[CHUNKS][64];
+    private long[] hashes = new long[64];
+    private int[] ids = new int[64];
+    private int size = 0;
+    private long comparisons = 0;
+    // Union find over the ids: parent of every id, -1 for ids that haven't been added
+    private int[] parent = new int[64];
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param maxDistance largest amount of differing bits of pictures that are taken for duplicates
+     */
+    public DuplicateIndex(int maxDistance) {
+        this.maxDistance = maxDistance;
+        this.chunkDistance = Math.min(CHUNK_BITS, maxDistance / CHUNKS);
+        for (int[] chunk : buckets) {
+            Arrays.fill(chunk, -1);
+        }
+        Arrays.fill(parent, -1);
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Adds a picture and joins it with the groups of all pictures similar to it
+     * @param id id of the picture, each id may only be added once
+     * @param hash perceptual hash of the picture
+     */
+    public void add(int id, long hash) {
+        if (id >= parent.length) {
+            int oldLength = parent.length;
+            parent = Arrays.copyOf(parent, Math.max(id + 1, oldLength + (oldLength >> 1)));
+            Arrays.fill(parent, oldLength, parent.length, -1);
+        }
+        if (parent[id] != -1) {
+            throw new IllegalArgumentException("Id " + id + " has been added already");
+        }
+        parent[id] = id;
+
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            probe(id, hash, chunk, chunkOf(hash, chunk), 0, chunkDistance);
+        }
+
+        if (size == hashes.length) {
+            int capacity = size + (size >> 1);
+            hashes = Arrays.copyOf(hashes, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                nextInBucket[chunk] = Arrays.copyOf(nextInBucket[chunk], capacity);
+            }
+        }
+        int entry = size++;
+        hashes[entry] = hash;
+        ids[entry] = id;
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int key = chunkOf(hash, chunk);
+            nextInBucket[chunk][entry] = buckets[chunk][key];
+            buckets[chunk][key] = entry;
+        }
+    }
+
+    /**
+     * @return groups of at least two similar pictures, the ids of each group ascending,
+     * the groups ordered by their smallest id
+     */
+    public List<int[]> getGroups() {
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int id = 0; id < parent.length; id++) {
+            if (parent[id] != -1) {
+                groups.computeIfAbsent(find(id), key -> new ArrayList<>()).add(id);
+            }
+        }
+        List<int[]> result = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            if (group.size() > 1) {
+                result.add(group.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return amount of added pictures
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return amount of hashes that have been compared so far, n * n / 2 for comparing all pairs
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Compares the new picture to all pictures in the bucket of the key and in the buckets of all keys that
+     * differ from it by flipping up to the remaining amount of bits, starting at firstBit
+     */
+    private void probe(int id, long hash, int chunk, int key, int firstBit, int flipsLeft) {
+        for (int entry = buckets[chunk][key]; entry != -1; entry = nextInBucket[chunk][entry]) {
+            comparisons++;
+            if (PerceptualHash.distance(hash, hashes[entry]) <= maxDistance) {
+                union(id, ids[entry]);
+            }
+        }
+        if (flipsLeft == 0) {
+            return;
+        }
+        for (int bit = firstBit; bit < CHUNK_BITS; bit++) {
+            probe(id, hash, chunk, key ^ (1 << bit), bit + 1, flipsLeft - 1);
+        }
+    }
+
+    private static int chunkOf(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & ((1 << CHUNK_BITS) - 1);
+    }
+
+    private int find(int id) {
+        while (parent[id] != id) {
+            // Path halving keeps the trees flat
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            // The smaller id becomes the root, so groups are named after their first picture
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,211 @@
+package de.thm.tlf.photoViewer.data;
+
+import javafx.scene.image.Image;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded cache for decoded images.
+ * The size of every entry is estimated as width * height * 4 bytes,
+ * the least recently used entries are evicted once the byte budget is exceeded.
+ * Concurrent requests for the same picture share a single decode. A decode that is running while its
+ * picture is invalidated or the cache is cleared isn't cached, it may have read the outdated file.
+ */
+public class ImageCache {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Image>> inFlight = new HashMap<>();
+
+    private long maxBytes;
+    private long currentBytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param maxBytes maximum amount of bytes the decoded images may use
+     */
+    public ImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Returns the decoded image of the picture, decoding and caching it if it is not cached yet
+     * @param picture the picture whose image is requested
+     * @return decoded Image or null if the picture could not be decoded
+     */
+    public Image get(Picture picture) {
+        String key = picture.getFileRef();
+        CompletableFuture<Image> pending;
+        boolean decodeHere = false;
+        synchronized (this) {
+            CacheEntry cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached.image;
+            }
+            misses++;
+            pending = inFlight.get(key);
+            if (pending == null) {
+                pending = new CompletableFuture<>();
+                inFlight.put(key, pending);
+                decodeHere = true;
+            }
+        }
+        if (!decodeHere) {
+            // Another thread (e.g. the prefetcher) is already decoding this picture
+            return pending.join();
+        }
+        // Decode outside of the lock so other pictures can still be served meanwhile
+        Image decoded = null;
+        try {
+            decoded = picture.load();
+        } finally {
+            synchronized (this) {
+                // Only still registered if the picture hasn't been invalidated meanwhile
+                if (inFlight.get(key) == pending) {
+                    inFlight.remove(key);
+                    if (decoded != null) {
+                        put(key, decoded);
+                    }
+                }
+            }
+            pending.complete(decoded);
+        }
+        return decoded;
+    }
+
+    /**
+     * @param picture the picture to check
+     * @return true if the image of the picture is currently cached
+     */
+    public synchronized boolean contains(Picture picture) {
+        return entries.containsKey(picture.getFileRef());
+    }
+
+    /**
+     * Removes the image of a single picture, e.g. because its file has changed
+     * @param picture the picture whose image is dropped
+     */
+    public synchronized void invalidate(Picture picture) {
+        // A running decode still completes for the threads waiting on it, but isn't cached anymore
+        inFlight.remove(picture.getFileRef());
+        CacheEntry removed = entries.remove(picture.getFileRef());
+        if (removed != null) {
+            currentBytes -= removed.size;
+        }
+    }
+
+    /**
+     * Removes all entries from the cache, the counters are kept
+     */
+    public synchronized void clear() {
+        inFlight.clear();
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Changes the byte budget, evicting entries if the new budget is already exceeded
+     * @param maxBytes new maximum amount of bytes the decoded images may use
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evictToBudget();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Estimates the amount of memory a decoded image occupies
+     * @param image the decoded image
+     * @return estimated size in bytes (4 bytes per pixel)
+     */
+    public static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4L;
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Stores a decoded image and evicts the least recently used entries if needed.
+     * Images that are larger than the whole budget are not cached at all.
+     */
+    private synchronized void put(String key, Image image) {
+        long size = sizeOf(image);
+        if (size > maxBytes) {
+            return;
+        }
+        CacheEntry previous = entries.put(key, new CacheEntry(image, size));
+        if (previous != null) {
+            currentBytes -= previous.size;
+        }
+        currentBytes += size;
+        evictToBudget();
+    }
+
+    /**
+     * Evicts least recently used entries until the budget is met
+     */
+    private void evictToBudget() {
+        Iterator<CacheEntry> it = entries.values().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            currentBytes -= it.next().size;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Decoded image together with its estimated size
+     */
+    private static final class CacheEntry {
+        private final Image image;
+        private final long size;
+
+        private CacheEntry(Image image, long size) {
+            this.image = image;
+            this.size = size;
+        }
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,282 @@
+package de.thm.tlf.photoViewer.data;
+
+import de.thm.tlf.photoViewer.io.MetadataReader;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent index of the metadata of previously opened picture files, one index file per folder.
+ * Every entry records the size and modification time the metadata belongs to, so a file whose
+ * size or modification time has changed is read again while all others are taken from the index.
+ * Index files are written to a temporary file and moved into place, a damaged or outdated
+ * index file is treated like a missing one.
+ * The index files are read into memory as a whole instead of being memory mapped:
+ * a mapped file stays locked on Windows until it is garbage collected and could not be replaced.
+ */
+public class LibraryIndex {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int MAGIC = 0x50564958; // "PVIX"
+    // 2: EXIF orientation and capture time, files of version 1 hold 0 for both and have to be read again
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".idx";
+
+    private final Path indexDir;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param indexDir directory the index files are stored in, created when the first one is written
+     */
+    public LibraryIndex(Path indexDir) {
+        this.indexDir = indexDir;
+    }
+
+    /**
+     * Creates an index in the default location, which is "photoViewer.libraryIndexDir" if set,
+     * otherwise the "index" directory next to the default thumbnail cache
+     * @return LibraryIndex in the default location
+     */
+    public static LibraryIndex createDefault() {
+        String dir = System.getProperty("photoViewer.libraryIndexDir");
+        return new LibraryIndex(dir != null ? Paths.get(dir) : ThumbnailCache.userCacheDir().resolve("index"));
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Reads the index of a folder
+     * @param folder the folder whose files are requested
+     * @return entries by file name, empty if the folder hasn't been indexed yet or its index can't be read
+     */
+    public Map<String, Entry> load(Path folder) {
+        Path indexFile = indexFileOf(folder);
+        Map<String, Entry> entries = new HashMap<>();
+        if (!Files.isRegularFile(indexFile)) {
+            return entries;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                return entries;
+            }
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.getShort() & 0xffff];
+                in.get(name);
+                long fileSize = in.getLong();
+                long lastModified = in.getLong();
+                PictureMetadata metadata = new PictureMetadata(in.getInt(), in.getInt(), in.get(), in.getLong());
+                entries.put(new String(name, StandardCharsets.UTF_8), new Entry(fileSize, lastModified, metadata));
+            }
+            return entries;
+        } catch (IOException | BufferUnderflowException e) {
+            // Damaged, the folder is indexed again
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Replaces the index of a folder
+     * @param folder the indexed folder
+     * @param entries entries by file name
+     * @return true if the index has been written
+     */
+    public boolean store(Path folder, Map<String, Entry> entries) {
+        int size = 3 * Integer.BYTES;
+        Map<byte[], Entry> encoded = new HashMap<>(entries.size() * 2);
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+            if (name.length <= 0xffff) {
+                encoded.put(name, e.getValue());
+                size += Short.BYTES + name.length + Entry.BYTES;
+            }
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(MAGIC).putInt(VERSION).putInt(encoded.size());
+        encoded.forEach((name, entry) -> {
+            PictureMetadata metadata = entry.metadata;
+            out.putShort((short) name.length).put(name)
+                    .putLong(entry.fileSize).putLong(entry.lastModified)
+                    .putInt(metadata.getWidth()).putInt(metadata.getHeight())
+                    .put((byte) metadata.getOrientation()).putLong(metadata.getCaptureTime());
+        });
+        try {
+            Files.createDirectories(indexDir);
+            Path tmp = Files.createTempFile(indexDir, "index", ".tmp");
+            try {
+                Files.write(tmp, out.array());
+                Files.move(tmp, indexFileOf(folder), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            return true;
+        } catch (IOException e) {
+            // The folder will simply be indexed again next time
+            return false;
+        }
+    }
+
+    /**
+     * Starts looking up the metadata of files through this index, see Session
+     * @return a new session
+     */
+    public Session openSession() {
+        return new Session();
+    }
+
+    /**
+     * @return directory the index files are stored in
+     */
+    public Path getIndexDir() {
+        return indexDir;
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * @return index file of the folder, named after the hash of its absolute path
+     */
+    private Path indexFileOf(Path folder) {
+        return indexDir.resolve(ThumbnailCache.hash(folder.toAbsolutePath().normalize().toString()) + SUFFIX);
+    }
+
+    /**
+     * Looks up the metadata of files in the index. Files that aren't indexed or have changed since they have been
+     * indexed are read (see MetadataReader) and their entries are updated. The index of a folder is loaded when the
+     * first of its files is looked up, commit writes back the folders whose entries have changed.
+     * Entries of files that have been deleted or renamed are dropped on commit, so the index files don't grow.
+     * Thread safe, files can be looked up by any number of threads at once.
+     */
+    public final class Session {
+        private final Map<Path, Map<String, Entry>> folders = new ConcurrentHashMap<>();
+        // Names looked up per folder, these files exist and don't have to be checked on commit
+        private final Map<Path, Set<String>> seenNames = new ConcurrentHashMap<>();
+        private final Set<Path> changedFolders = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger indexedCount = new AtomicInteger();
+        private final AtomicInteger readCount = new AtomicInteger();
+
+        private Session() {}
+
+        /**
+         * @param file the picture file
+         * @param fileSize current size of the file
+         * @param lastModified current modification time of the file
+         * @return metadata of the file, PictureMetadata.UNKNOWN if it isn't indexed and can't be read
+         */
+        public PictureMetadata metadataOf(Path file, long fileSize, long lastModified) {
+            Path absolute = file.toAbsolutePath();
+            Path folder = absolute.getParent();
+            String name = absolute.getFileName().toString();
+            Map<String, Entry> entries = folders.computeIfAbsent(folder, f -> new ConcurrentHashMap<>(load(f)));
+            seenNames.computeIfAbsent(folder, f -> ConcurrentHashMap.newKeySet()).add(name);
+            Entry entry = entries.get(name);
+            if (entry != null && entry.matches(fileSize, lastModified)) {
+                indexedCount.incrementAndGet();
+                return entry.getMetadata();
+            }
+            readCount.incrementAndGet();
+            PictureMetadata metadata = MetadataReader.read(absolute);
+            if (metadata == null) {
+                // Not readable (yet), nothing worth remembering
+                return PictureMetadata.UNKNOWN;
+            }
+            entries.put(name, new Entry(fileSize, lastModified, metadata));
+            changedFolders.add(folder);
+            return metadata;
+        }
+
+        /**
+         * Drops the entries of files that no longer exist, then writes the index files of the folders whose
+         * entries have changed. Only files that haven't been looked up in this session are checked,
+         * a folder that has been loaded only in part keeps the entries of its other files.
+         * @return amount of folders that have been written, folders that failed are indexed again next time
+         */
+        public int commit() {
+            folders.forEach((folder, entries) -> {
+                Set<String> seen = seenNames.getOrDefault(folder, Set.of());
+                if (entries.keySet().removeIf(name -> !seen.contains(name) && !Files.exists(folder.resolve(name)))) {
+                    changedFolders.add(folder);
+                }
+            });
+            int written = 0;
+            for (Path folder : changedFolders) {
+                if (store(folder, folders.get(folder))) {
+                    written++;
+                }
+            }
+            changedFolders.clear();
+            return written;
+        }
+
+        /**
+         * @return amount of files whose metadata has been taken from the index
+         */
+        public int getIndexedCount() {
+            return indexedCount.get();
+        }
+
+        /**
+         * @return amount of files whose metadata had to be read from the file
+         */
+        public int getReadCount() {
+            return readCount.get();
+        }
+    }
+
+    /**
+     * Indexed state of a single file
+     */
+    public static final class Entry {
+        private static final int BYTES = 2 * Long.BYTES + 2 * Integer.BYTES + 1 + Long.BYTES;
+
+        private final long fileSize;
+        private final long lastModified;
+        private final PictureMetadata metadata;
+
+        /**
+         * @param fileSize size of the file the metadata has been read from
+         * @param lastModified modification time of the file the metadata has been read from
+         * @param metadata the metadata of the file
+         */
+        public Entry(long fileSize, long lastModified, PictureMetadata metadata) {
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.metadata = metadata;
+        }
+
+        /**
+         * @param fileSize current size of the file
+         * @param lastModified current modification time of the file
+         * @return true if the entry still describes the file
+         */
+        public boolean matches(long fileSize, long lastModified) {
+            return this.fileSize == fileSize && this.lastModified == lastModified;
+        }
+
+        public PictureMetadata getMetadata() {
+            return metadata;
+        }
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,74 @@
+package de.thm.tlf.photoViewer.data;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+
+/**
+ * Perceptual hash of a picture (dHash): the picture is reduced to 9x8 grey values and every bit tells whether
+ * a value is brighter than its right neighbour. Scaling, recompressing or slightly changing the colors of a
+ * picture only flips a few bits, so the number of differing bits measures how alike two pictures look.
+ * Meant to be computed from the previews, as detail beyond 9x8 pixels doesn't matter anyway.
+ */
+public final class PerceptualHash {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    private PerceptualHash() {
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * @param image the decoded picture, usually its preview
+     * @return the 64 bit hash of the picture
+     */
+    public static long of(Image image) {
+        PixelReader reader = image.getPixelReader();
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        if (reader == null || width == 0 || height == 0) {
+            throw new IllegalArgumentException("The image holds no pixels");
+        }
+        // Average grey value of each cell, every pixel counts for the cell it falls into
+        long[] sums = new long[COLUMNS * ROWS];
+        int[] counts = new int[COLUMNS * ROWS];
+        for (int y = 0; y < height; y++) {
+            int row = y * ROWS / height;
+            for (int x = 0; x < width; x++) {
+                int argb = reader.getArgb(x, y);
+                int grey = (299 * ((argb >> 16) & 0xff) + 587 * ((argb >> 8) & 0xff) + 114 * (argb & 0xff)) / 1000;
+                int cell = row * COLUMNS + x * COLUMNS / width;
+                sums[cell] += grey;
+                counts[cell]++;
+            }
+        }
+        long hash = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS - 1; column++) {
+                int cell = row * COLUMNS + column;
+                // Cells without pixels (pictures narrower than 9 pixels) count as black
+                long left = counts[cell] > 0 ? sums[cell] * counts[cell + 1] : 0;
+                long right = counts[cell + 1] > 0 ? sums[cell + 1] * counts[cell] : 0;
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return amount of differing bits of two hashes, 0 for pictures that look the same, 64 at most
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+    //------ End Methods ------//
+}
@@ -1,25 +1,183 @@
 package de.thm.tlf.photoViewer.data;
 
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+import de.thm.tlf.photoViewer.io.PictureMetadata;
 import javafx.scene.image.Image;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.File;
+import java.nio.file.Paths;
 
 /**
  * Data Class that is used for Image-Handling and -storing
+ * Only holds the path and basic file metadata, the pixels are decoded
+ * the first time the image is requested.
+ * If an ImageCache is supplied the decoded image is kept there instead of in the picture itself.
+ * The image can be limited to a maximum size (e.g. the screen size), larger pictures are scaled
+ * down while decoding so their memory follows the screen size rather than the file size.
+ * Pictures can be linked to a lower resolution level of the same file (e.g. its preview),
+ * forming a small image pyramid that allows showing something while the picture is still decoding.
+ * Handles are cheap and may be created repeatedly for the same file, two handles are equal
+ * if they refer to the same version of the same file.
  */
 public class Picture {
+    private final String fileRef;
+    private final long fileSize;
+    private final long lastModified;
+    private final ImageCache cache;
+    private final double maxWidth;
+    private final double maxHeight;
+
     private Image image;
+    private volatile DecodeResult failure;
+    private volatile Picture lowResolution;
+    private volatile PictureMetadata metadata = PictureMetadata.UNKNOWN;
 
     public Picture (String fileRef) {
-        try {
-            image = new Image(new FileInputStream(fileRef));
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
+        this(fileRef, null);
+    }
+
+    public Picture (String fileRef, ImageCache cache) {
+        this(fileRef, cache, 0, 0);
+    }
+
+    /**
+     * @param fileRef path of the picture file
+     * @param cache cache the decoded image is kept in, may be null to keep it in this object
+     * @param maxWidth maximum width of the decoded image, 0 for no limit
+     * @param maxHeight maximum height of the decoded image, 0 for no limit
+     */
+    public Picture (String fileRef, ImageCache cache, double maxWidth, double maxHeight) {
+        this(fileRef, new File(fileRef).length(), new File(fileRef).lastModified(), cache, maxWidth, maxHeight);
+    }
+
+    /**
+     * Creates the handle of a picture whose file metadata is already known, e.g. from a PictureCatalog
+     * @param fileRef path of the picture file
+     * @param fileSize size of the file in bytes
+     * @param lastModified time of the last modification of the file
+     * @param cache cache the decoded image is kept in, may be null to keep it in this object
+     * @param maxWidth maximum width of the decoded image, 0 for no limit
+     * @param maxHeight maximum height of the decoded image, 0 for no limit
+     */
+    public Picture (String fileRef, long fileSize, long lastModified, ImageCache cache,
+                    double maxWidth, double maxHeight) {
+        this.fileRef = fileRef;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.cache = cache;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
     }
 
+    /**
+     * Returns the decoded image, decoding it on first access
+     * @return Image of this picture or null if the file could not be read
+     */
     public Image getImage() {
-        return image;
+        if (cache != null) {
+            return cache.get(this);
+        }
+        synchronized (this) {
+            if (image == null) {
+                image = load();
+            }
+            return image;
+        }
+    }
+
+    /**
+     * @return true if the pixels of this picture have already been decoded and are still held in memory
+     */
+    public boolean isDecoded() {
+        if (cache != null) {
+            return cache.contains(this);
+        }
+        synchronized (this) {
+            return image != null;
+        }
+    }
+
+    /**
+     * @return the next lower resolution level of this picture or null if there is none
+     */
+    public Picture getLowResolution() {
+        return lowResolution;
+    }
+
+    /**
+     * Links a lower resolution level of the same file to this picture
+     * @param lowResolution the lower resolution level, null to remove the link
+     */
+    public void setLowResolution(Picture lowResolution) {
+        this.lowResolution = lowResolution;
+    }
+
+    /**
+     * @return what is known about the picture without decoding it, e.g. to size a placeholder
+     */
+    public PictureMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @param metadata what is known about the picture without decoding it
+     */
+    public void setMetadata(PictureMetadata metadata) {
+        this.metadata = metadata;
+    }
+
+    /**
+     * @return the result of the last failed decode or null if the last decode succeeded
+     */
+    public DecodeResult getFailure() {
+        return failure;
+    }
+
+    /**
+     * Decodes the picture and remembers a failure for getFailure
+     * @return decoded Image or null if the file could not be decoded
+     */
+    Image load() {
+        DecodeResult result = decode();
+        failure = result.isOk() ? null : result;
+        return result.getImage();
+    }
+
+    /**
+     * Decodes the referenced file into an Image
+     * @return result holding the decoded Image or the reason why it could not be decoded
+     */
+    protected DecodeResult decode() {
+        return ImageFileReader.decode(Paths.get(fileRef), maxWidth, maxHeight);
+    }
+
+    public String getFileRef() {
+        return fileRef;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Picture other = (Picture) o;
+        return fileRef.equals(other.fileRef) && fileSize == other.fileSize && lastModified == other.lastModified;
+    }
+
+    @Override
+    public int hashCode() {
+        return fileRef.hashCode();
     }
 }
@@ -0,0 +1,559 @@
+package de.thm.tlf.photoViewer.data;
+
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact list of picture files, stored as parallel arrays of primitives instead of one object per picture.
+ * Paths are split into their directory, which is interned (a collection usually spans only a few of them),
+ * and their file name, which is kept as UTF-8 in a single shared byte pool.
+ * Together with size, modification time and the PictureMetadata an entry costs roughly 65 to 95 bytes of heap,
+ * so millions of pictures can be listed. Picture handles are created from an entry when they are needed,
+ * decoded images are only ever kept in the caches.
+ * Lookups by path go through an open addressing hash table of entry indices.
+ * Not thread safe, the PictureHandler only changes it while holding its write lock. Readers on other threads
+ * get a snapshot, a read only catalog that shares the arrays with this one: appending only writes behind the
+ * entries of the snapshots, every other change copies the arrays first (copy on write).
+ */
+public class PictureCatalog {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final List<String> directories;
+    private final Map<String, Integer> directoryIds;
+    private final boolean readOnly;
+
+    private int size = 0;
+    private int[] directoryOf = new int[INITIAL_CAPACITY];
+    private int[] nameStart = new int[INITIAL_CAPACITY];
+    private int[] nameLength = new int[INITIAL_CAPACITY];
+    private long[] fileSize = new long[INITIAL_CAPACITY];
+    private long[] lastModified = new long[INITIAL_CAPACITY];
+    private int[] width = new int[INITIAL_CAPACITY];
+    private int[] height = new int[INITIAL_CAPACITY];
+    private byte[] orientation = new byte[INITIAL_CAPACITY];
+    private long[] captureTime = new long[INITIAL_CAPACITY];
+
+    private byte[] names = new byte[INITIAL_CAPACITY * 16];
+    private int namesUsed = 0;
+    // Bytes of removed or replaced names that are still in the pool
+    private int namesGarbage = 0;
+
+    // Index + 1 of the entries, 0 marks a free slot. Rebuilt lazily after removals.
+    private int[] hashTable = new int[INITIAL_CAPACITY * 2];
+    private boolean hashTableValid = true;
+
+    // Entries below this index are shared with a snapshot and must not be changed in place
+    private int sharedSize = 0;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    public PictureCatalog() {
+        directories = new ArrayList<>();
+        directoryIds = new HashMap<>();
+        readOnly = false;
+    }
+
+    /**
+     * Creates a read only snapshot of the source
+     */
+    private PictureCatalog(PictureCatalog source) {
+        // Only a few directories, copying them is cheaper than sharing a growing list safely
+        directories = List.copyOf(source.directories);
+        directoryIds = Map.copyOf(source.directoryIds);
+        readOnly = true;
+        size = source.size;
+        directoryOf = source.directoryOf;
+        nameStart = source.nameStart;
+        nameLength = source.nameLength;
+        fileSize = source.fileSize;
+        lastModified = source.lastModified;
+        width = source.width;
+        height = source.height;
+        orientation = source.orientation;
+        captureTime = source.captureTime;
+        names = source.names;
+        namesUsed = source.namesUsed;
+        hashTable = source.hashTable;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Appends a picture file
+     * @param fileRef path of the picture file
+     * @param fileSize size of the file in bytes
+     * @param lastModified time of the last modification of the file, in milliseconds since the epoch
+     * @return index of the new entry
+     */
+    public int add(String fileRef, long fileSize, long lastModified) {
+        checkWritable();
+        ensureCapacity(size + 1);
+        int index = size++;
+        write(index, fileRef, fileSize, lastModified);
+        if (hashTableValid) {
+            if (size * 2 > hashTable.length) {
+                hashTableValid = false;
+            } else {
+                insertIntoHashTable(index);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Replaces an entry, e.g. because its file has changed
+     * @param index index of the entry
+     * @param fileRef path of the picture file
+     * @param fileSize size of the file in bytes
+     * @param lastModified time of the last modification of the file, in milliseconds since the epoch
+     */
+    public void set(int index, String fileRef, long fileSize, long lastModified) {
+        checkIndex(index);
+        unshare(index);
+        namesGarbage += nameLength[index];
+        write(index, fileRef, fileSize, lastModified);
+        hashTableValid = false;
+    }
+
+    /**
+     * Removes an entry, all following entries move one position forward
+     * @param index index of the entry
+     */
+    public void remove(int index) {
+        checkIndex(index);
+        unshare(index);
+        namesGarbage += nameLength[index];
+        int moved = size - index - 1;
+        System.arraycopy(directoryOf, index + 1, directoryOf, index, moved);
+        System.arraycopy(nameStart, index + 1, nameStart, index, moved);
+        System.arraycopy(nameLength, index + 1, nameLength, index, moved);
+        System.arraycopy(fileSize, index + 1, fileSize, index, moved);
+        System.arraycopy(lastModified, index + 1, lastModified, index, moved);
+        System.arraycopy(width, index + 1, width, index, moved);
+        System.arraycopy(height, index + 1, height, index, moved);
+        System.arraycopy(orientation, index + 1, orientation, index, moved);
+        System.arraycopy(captureTime, index + 1, captureTime, index, moved);
+        size--;
+        hashTableValid = false;
+        if (namesGarbage > namesUsed / 2) {
+            compactNames();
+        }
+    }
+
+    /**
+     * Removes all entries and releases the memory they used
+     */
+    public void clear() {
+        checkWritable();
+        directories.clear();
+        directoryIds.clear();
+        size = 0;
+        directoryOf = new int[INITIAL_CAPACITY];
+        nameStart = new int[INITIAL_CAPACITY];
+        nameLength = new int[INITIAL_CAPACITY];
+        fileSize = new long[INITIAL_CAPACITY];
+        lastModified = new long[INITIAL_CAPACITY];
+        width = new int[INITIAL_CAPACITY];
+        height = new int[INITIAL_CAPACITY];
+        orientation = new byte[INITIAL_CAPACITY];
+        captureTime = new long[INITIAL_CAPACITY];
+        names = new byte[INITIAL_CAPACITY * 16];
+        namesUsed = 0;
+        namesGarbage = 0;
+        hashTable = new int[INITIAL_CAPACITY * 2];
+        hashTableValid = true;
+        sharedSize = 0;
+    }
+
+    /**
+     * Makes room for the given amount of entries, avoids growing repeatedly while adding many of them
+     * @param capacity amount of entries the catalog will hold
+     */
+    public void ensureCapacity(int capacity) {
+        checkWritable();
+        if (capacity <= directoryOf.length) {
+            return;
+        }
+        copyArrays(Math.max(capacity, directoryOf.length + (directoryOf.length >> 1)));
+    }
+
+    /**
+     * Creates a read only copy of the current entries that can be read by any number of threads,
+     * while this catalog goes on being changed. Only takes as long as copying the directories,
+     * the entries are shared until they are changed.
+     * @return the snapshot, the catalog itself if it is a snapshot already
+     */
+    public PictureCatalog snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        // Snapshots must not build anything lazily, as they are read concurrently
+        if (!hashTableValid) {
+            rebuildHashTable();
+        }
+        sharedSize = size;
+        return new PictureCatalog(this);
+    }
+
+    /**
+     * @return true if the catalog is a snapshot, which can't be changed
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+    /**
+     * Looks up an entry by its path
+     * @param fileRef path of the picture file
+     * @return index of the entry or -1 if there is none for the path
+     */
+    public int indexOf(String fileRef) {
+        int split = splitIndex(fileRef);
+        Integer directory = directoryIds.get(fileRef.substring(0, split));
+        if (directory == null) {
+            return -1;
+        }
+        byte[] name = fileRef.substring(split).getBytes(StandardCharsets.UTF_8);
+        if (!hashTableValid) {
+            rebuildHashTable();
+        }
+        int mask = hashTable.length - 1;
+        for (int slot = hash(directory, name, 0, name.length) & mask; hashTable[slot] != 0; slot = (slot + 1) & mask) {
+            int index = hashTable[slot] - 1;
+            // The table of a snapshot can hold entries appended to the catalog it has been taken from later on
+            if (index < size && directoryOf[index] == directory && Arrays.equals(names, nameStart[index],
+                    nameStart[index] + nameLength[index], name, 0, name.length)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return amount of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index index of the entry
+     * @return path of the picture file
+     */
+    public String getFileRef(int index) {
+        checkIndex(index);
+        return directories.get(directoryOf[index])
+                + new String(names, nameStart[index], nameLength[index], StandardCharsets.UTF_8);
+    }
+
+    public long getFileSize(int index) {
+        checkIndex(index);
+        return fileSize[index];
+    }
+
+    public long getLastModified(int index) {
+        checkIndex(index);
+        return lastModified[index];
+    }
+
+    /**
+     * @param index index of the entry
+     * @return width of the stored picture in pixels, 0 if it isn't known
+     */
+    public int getWidth(int index) {
+        checkIndex(index);
+        return width[index];
+    }
+
+    /**
+     * @param index index of the entry
+     * @return height of the stored picture in pixels, 0 if it isn't known
+     */
+    public int getHeight(int index) {
+        checkIndex(index);
+        return height[index];
+    }
+
+    /**
+     * @param index index of the entry
+     * @return EXIF orientation of the picture (1 to 8), 0 if it isn't known
+     */
+    public int getOrientation(int index) {
+        checkIndex(index);
+        return orientation[index];
+    }
+
+    /**
+     * @param index index of the entry
+     * @return time the picture was taken in milliseconds since the epoch, 0 if it isn't known
+     */
+    public long getCaptureTime(int index) {
+        checkIndex(index);
+        return captureTime[index];
+    }
+
+    /**
+     * @param index index of the entry
+     * @return time the picture was taken, or the time its file was last modified if that isn't known
+     */
+    public long getDate(int index) {
+        checkIndex(index);
+        return captureTime[index] != 0 ? captureTime[index] : lastModified[index];
+    }
+
+    /**
+     * Checks the extension of the file name without creating a String
+     * @param index index of the entry
+     * @param extension extension without the dot, in lower case
+     * @return true if the file name ends with the extension, ignoring case
+     */
+    public boolean hasExtension(int index, String extension) {
+        checkIndex(index);
+        int length = nameLength[index];
+        int start = nameStart[index] + length - extension.length();
+        if (extension.length() >= length || names[start - 1] != '.') {
+            return false;
+        }
+        for (int i = 0; i < extension.length(); i++) {
+            if (toLowerAscii(names[start + i]) != extension.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the file names of two entries without creating Strings, the directory only decides
+     * between equal names. Letters are compared ignoring case, other characters by their UTF-8 bytes,
+     * which keeps the order of their code points.
+     * @param a index of the first entry
+     * @param b index of the second entry
+     * @return negative, zero or positive like a Comparator
+     */
+    public int compareNames(int a, int b) {
+        checkIndex(a);
+        checkIndex(b);
+        int result = compareBytes(nameStart[a], nameLength[a], nameStart[b], nameLength[b], true);
+        if (result == 0) {
+            result = compareBytes(nameStart[a], nameLength[a], nameStart[b], nameLength[b], false);
+        }
+        if (result == 0 && directoryOf[a] != directoryOf[b]) {
+            result = directories.get(directoryOf[a]).compareTo(directories.get(directoryOf[b]));
+        }
+        return result;
+    }
+
+    /**
+     * The first 8 bytes of the file name in lower case, a sort key that is cheap to compare
+     * @param index index of the entry
+     * @return the bytes as an unsigned number, shorter names are padded with zeros.
+     * Smaller numbers come first in compareNames, equal numbers have to be compared there.
+     */
+    public long getNamePrefix(int index) {
+        checkIndex(index);
+        long prefix = 0;
+        int length = Math.min(Long.BYTES, nameLength[index]);
+        for (int i = 0; i < length; i++) {
+            prefix |= (long) toLowerAscii(names[nameStart[index] + i]) << (8 * (Long.BYTES - 1 - i));
+        }
+        return prefix;
+    }
+
+    /**
+     * @param index index of the entry
+     * @return everything known about the picture without decoding it
+     */
+    public PictureMetadata getMetadata(int index) {
+        checkIndex(index);
+        return new PictureMetadata(width[index], height[index], orientation[index], captureTime[index]);
+    }
+
+    /**
+     * Stores what is known about the picture without decoding it
+     * @param index index of the entry
+     * @param metadata metadata read from the file header or the LibraryIndex
+     */
+    public void setMetadata(int index, PictureMetadata metadata) {
+        checkIndex(index);
+        unshare(index);
+        width[index] = metadata.getWidth();
+        height[index] = metadata.getHeight();
+        orientation[index] = (byte) metadata.getOrientation();
+        captureTime[index] = metadata.getCaptureTime();
+    }
+
+    /**
+     * @return approximate amount of heap the catalog occupies, in bytes
+     */
+    public long getHeapBytes() {
+        long arrays = (long) directoryOf.length * (5 * Integer.BYTES + 3 * Long.BYTES + 1);
+        long directoryNames = 0;
+        for (String dir : directories) {
+            directoryNames += 2L * dir.length() + 64;
+        }
+        return arrays + names.length + (long) hashTable.length * Integer.BYTES + directoryNames;
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Fills an entry, the name is appended to the pool
+     */
+    private void write(int index, String fileRef, long fileSize, long lastModified) {
+        int split = splitIndex(fileRef);
+        String directory = fileRef.substring(0, split);
+        Integer directoryId = directoryIds.get(directory);
+        if (directoryId == null) {
+            directoryId = directories.size();
+            directories.add(directory);
+            directoryIds.put(directory, directoryId);
+        }
+        byte[] name = fileRef.substring(split).getBytes(StandardCharsets.UTF_8);
+        if (namesUsed + name.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(namesUsed + name.length, names.length + (names.length >> 1)));
+        }
+        System.arraycopy(name, 0, names, namesUsed, name.length);
+
+        directoryOf[index] = directoryId;
+        nameStart[index] = namesUsed;
+        nameLength[index] = name.length;
+        this.fileSize[index] = fileSize;
+        this.lastModified[index] = lastModified;
+        width[index] = 0;
+        height[index] = 0;
+        orientation[index] = 0;
+        captureTime[index] = 0;
+        namesUsed += name.length;
+    }
+
+    /**
+     * Replaces the entry arrays by copies of the given capacity, which aren't shared with any snapshot
+     */
+    private void copyArrays(int newCapacity) {
+        directoryOf = Arrays.copyOf(directoryOf, newCapacity);
+        nameStart = Arrays.copyOf(nameStart, newCapacity);
+        nameLength = Arrays.copyOf(nameLength, newCapacity);
+        fileSize = Arrays.copyOf(fileSize, newCapacity);
+        lastModified = Arrays.copyOf(lastModified, newCapacity);
+        width = Arrays.copyOf(width, newCapacity);
+        height = Arrays.copyOf(height, newCapacity);
+        orientation = Arrays.copyOf(orientation, newCapacity);
+        captureTime = Arrays.copyOf(captureTime, newCapacity);
+        sharedSize = 0;
+    }
+
+    /**
+     * Copies the names of all current entries into a new pool, dropping the ones of removed entries
+     */
+    private void compactNames() {
+        // Every name moves, so the starts of the entries a snapshot still reads must not be changed in place
+        if (sharedSize > 0) {
+            copyArrays(directoryOf.length);
+        }
+        byte[] compacted = new byte[Math.max(INITIAL_CAPACITY * 16, namesUsed - namesGarbage)];
+        int used = 0;
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(names, nameStart[i], compacted, used, nameLength[i]);
+            nameStart[i] = used;
+            used += nameLength[i];
+        }
+        names = compacted;
+        namesUsed = used;
+        namesGarbage = 0;
+    }
+
+    /**
+     * Creates the hash table for the current entries, at most half of its slots are used
+     */
+    private void rebuildHashTable() {
+        int length = Integer.highestOneBit(Math.max(INITIAL_CAPACITY, directoryOf.length) * 2 - 1) << 1;
+        hashTable = new int[length];
+        for (int i = 0; i < size; i++) {
+            insertIntoHashTable(i);
+        }
+        hashTableValid = true;
+    }
+
+    private void insertIntoHashTable(int index) {
+        int mask = hashTable.length - 1;
+        int slot = hash(directoryOf[index], names, nameStart[index], nameLength[index]) & mask;
+        while (hashTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        hashTable[slot] = index + 1;
+    }
+
+    private static int hash(int directory, byte[] bytes, int start, int length) {
+        int h = directory;
+        for (int i = start; i < start + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        // Spread the bits, only the lower ones select the slot
+        return h ^ (h >>> 16);
+    }
+
+    private int compareBytes(int startA, int lengthA, int startB, int lengthB, boolean ignoreCase) {
+        int common = Math.min(lengthA, lengthB);
+        for (int i = 0; i < common; i++) {
+            int x = names[startA + i] & 0xff;
+            int y = names[startB + i] & 0xff;
+            if (ignoreCase) {
+                x = toLowerAscii((byte) x);
+                y = toLowerAscii((byte) y);
+            }
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    private static int toLowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b & 0xff;
+    }
+
+    /**
+     * @return position where the file name starts, everything before it (including the separator) is the directory
+     */
+    private static int splitIndex(String fileRef) {
+        return Math.max(fileRef.lastIndexOf('/'), fileRef.lastIndexOf(File.separatorChar)) + 1;
+    }
+
+    /**
+     * Copies the arrays before an entry is changed that a snapshot still reads
+     */
+    private void unshare(int index) {
+        checkWritable();
+        if (index < sharedSize) {
+            copyArrays(directoryOf.length);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("A snapshot of the catalog can't be changed");
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+    //------ End Methods ------//
+}
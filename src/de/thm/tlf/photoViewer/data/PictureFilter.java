@@ -0,0 +1,139 @@
+package de.thm.tlf.photoViewer.data;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Selects the entries of a PictureCatalog that are shown, by file format and by date.
+ * The date is the time the picture was taken, or the modification time of the file if that isn't known.
+ * Single files can be hidden as well, e.g. duplicates of other pictures (see DuplicateIndex).
+ * Immutable, a changed filter is a new instance.
+ */
+public final class PictureFilter {
+    /** Filter that lets all pictures pass */
+    public static final PictureFilter ALL = new PictureFilter(Set.of(), 0, 0);
+
+    private final Set<String> extensions;
+    private final long from;
+    private final long to;
+    private final Set<String> hidden;
+
+    /**
+     * @param extensions file extensions (without the dot) of the formats that are shown, empty for all formats
+     * @param from earliest date that is shown in milliseconds since the epoch, 0 for no limit
+     * @param to date (exclusive) up to which pictures are shown in milliseconds since the epoch, 0 for no limit
+     */
+    public PictureFilter(Set<String> extensions, long from, long to) {
+        this(extensions, from, to, Set.of());
+    }
+
+    /**
+     * @param extensions file extensions (without the dot) of the formats that are shown, empty for all formats
+     * @param from earliest date that is shown in milliseconds since the epoch, 0 for no limit
+     * @param to date (exclusive) up to which pictures are shown in milliseconds since the epoch, 0 for no limit
+     * @param hidden paths of picture files that aren't shown
+     */
+    public PictureFilter(Set<String> extensions, long from, long to, Set<String> hidden) {
+        this.extensions = extensions.stream()
+                .map(e -> e.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.from = from;
+        this.to = to;
+        this.hidden = Set.copyOf(hidden);
+    }
+
+    /**
+     * @param extensions file extensions (without the dot) of the formats that are shown, empty for all formats
+     * @return filter with the same date range that only lets the given formats pass
+     */
+    public PictureFilter withExtensions(Set<String> extensions) {
+        return new PictureFilter(extensions, from, to, hidden);
+    }
+
+    /**
+     * @param from earliest date that is shown in milliseconds since the epoch, 0 for no limit
+     * @param to date (exclusive) up to which pictures are shown in milliseconds since the epoch, 0 for no limit
+     * @return filter with the same formats that only lets pictures of the given date range pass
+     */
+    public PictureFilter withDateRange(long from, long to) {
+        return new PictureFilter(extensions, from, to, hidden);
+    }
+
+    /**
+     * @param hidden paths of picture files that aren't shown, empty to show all files
+     * @return filter with the same formats and date range that hides the given files
+     */
+    public PictureFilter withHidden(Set<String> hidden) {
+        return new PictureFilter(extensions, from, to, hidden);
+    }
+
+    /**
+     * @param catalog catalog holding the entry
+     * @param index index of the entry
+     * @return true if the entry is shown
+     */
+    public boolean matches(PictureCatalog catalog, int index) {
+        if (!extensions.isEmpty() && !hasExtension(catalog, index)) {
+            return false;
+        }
+        if (from != 0 || to != 0) {
+            long date = catalog.getDate(index);
+            if ((from != 0 && date < from) || (to != 0 && date >= to)) {
+                return false;
+            }
+        }
+        // Checked last, as it's the only check that needs the path as a String
+        return hidden.isEmpty() || !hidden.contains(catalog.getFileRef(index));
+    }
+
+    /**
+     * @return true if this filter lets all pictures pass
+     */
+    public boolean isEmpty() {
+        return extensions.isEmpty() && from == 0 && to == 0 && hidden.isEmpty();
+    }
+
+    public Set<String> getExtensions() {
+        return extensions;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public Set<String> getHidden() {
+        return hidden;
+    }
+
+    private boolean hasExtension(PictureCatalog catalog, int index) {
+        for (String extension : extensions) {
+            if (catalog.hasExtension(index, extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PictureFilter other = (PictureFilter) o;
+        return extensions.equals(other.extensions) && from == other.from && to == other.to
+                && hidden.equals(other.hidden);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * extensions.hashCode() + Long.hashCode(from)) + Long.hashCode(to)) + hidden.hashCode();
+    }
+}
@@ -0,0 +1,359 @@
+package de.thm.tlf.photoViewer.data;
+
+import java.util.Arrays;
+
+/**
+ * The entries of a PictureCatalog in the order they are shown, as a permutation of catalog indices.
+ * Sorting and filtering only rearrange this int array, the catalog itself and the picture handles
+ * stay untouched. Entries with equal sort keys keep the order they have been loaded in, so the
+ * order is the same every time it is sorted. Sorting takes about twice as long as Arrays.sort on as many
+ * longs, around 10 ms for 100 000 entries on a desktop machine.
+ * A position refers to the order, an index to the catalog.
+ * Not thread safe, like the catalog it's only changed by the PictureHandler. Readers on other threads
+ * get a snapshot, a read only copy of the order on a snapshot of the catalog.
+ */
+public class PictureOrder {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final PictureCatalog catalog;
+    private final boolean readOnly;
+    private SortMode sortMode = SortMode.LOADED;
+    private boolean descending = false;
+    private PictureFilter filter = PictureFilter.ALL;
+
+    private int[] entries = new int[0];
+    private int size = 0;
+    // Position of every catalog index, -1 if it's filtered out. Rebuilt lazily after changes,
+    // snapshots may build it on several threads at once, each of them publishes a complete array.
+    private volatile int[] positions;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param catalog the catalog whose entries are ordered, all entries it already holds are added
+     */
+    public PictureOrder(PictureCatalog catalog) {
+        this.catalog = catalog;
+        this.readOnly = false;
+        rebuild();
+    }
+
+    /**
+     * Creates a read only copy of the source on a snapshot of its catalog
+     */
+    private PictureOrder(PictureOrder source, PictureCatalog catalog) {
+        this.catalog = catalog;
+        this.readOnly = true;
+        this.sortMode = source.sortMode;
+        this.descending = source.descending;
+        this.filter = source.filter;
+        this.entries = Arrays.copyOf(source.entries, source.size);
+        this.size = source.size;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * @return amount of entries that are shown
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param position position in the order
+     * @return catalog index of the entry at the position
+     */
+    public int get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of bounds for length " + size);
+        }
+        return entries[position];
+    }
+
+    /**
+     * @param index catalog index of an entry
+     * @return position of the entry in the order, -1 if it's filtered out
+     */
+    public int positionOf(int index) {
+        int[] current = positions;
+        if (current == null) {
+            current = new int[catalog.size()];
+            Arrays.fill(current, -1);
+            for (int i = 0; i < size; i++) {
+                current[entries[i]] = i;
+            }
+            positions = current;
+        }
+        return index >= 0 && index < current.length ? current[index] : -1;
+    }
+
+    /**
+     * Creates a read only copy of the order that can be read by any number of threads,
+     * while this order goes on being changed. Copies the entries, which takes about as long as adding to the order.
+     * @param catalogSnapshot snapshot of the catalog taken at the same time (see PictureCatalog.snapshot)
+     * @return the snapshot, the order itself if it is a snapshot already
+     */
+    public PictureOrder snapshot(PictureCatalog catalogSnapshot) {
+        if (readOnly) {
+            return this;
+        }
+        if (catalogSnapshot.size() != catalog.size() || !catalogSnapshot.isReadOnly()) {
+            throw new IllegalArgumentException("Not a snapshot of the current catalog");
+        }
+        return new PictureOrder(this, catalogSnapshot);
+    }
+
+    public SortMode getSortMode() {
+        return sortMode;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public PictureFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sorts and filters all entries of the catalog again
+     * @param sortMode the sort key
+     * @param descending true to show the largest key first
+     * @param filter selects the entries that are shown
+     * @return catalog indices of the previous order, position by position
+     */
+    public int[] apply(SortMode sortMode, boolean descending, PictureFilter filter) {
+        checkWritable();
+        int[] previous = Arrays.copyOf(entries, size);
+        this.sortMode = sortMode;
+        this.descending = descending;
+        this.filter = filter;
+        rebuild();
+        return previous;
+    }
+
+    /**
+     * Adds entries that have been appended to the catalog, they are merged into the current order
+     * @param from catalog index of the first new entry, all following ones are new as well
+     * @return the positions the new entries that pass the filter have been added at, ascending
+     */
+    public int[] added(int from) {
+        checkWritable();
+        int[] added = new int[catalog.size() - from];
+        int count = 0;
+        for (int i = from; i < catalog.size(); i++) {
+            if (filter.matches(catalog, i)) {
+                added[count++] = i;
+            }
+        }
+        sort(added, count);
+
+        int[] merged = new int[size + count];
+        int[] addedAt = new int[count];
+        int a = 0;
+        int b = 0;
+        for (int k = 0; k < merged.length; k++) {
+            if (b < count && (a == size || compare(added[b], entries[a]) < 0)) {
+                addedAt[b] = k;
+                merged[k] = added[b++];
+            } else {
+                merged[k] = entries[a++];
+            }
+        }
+        entries = merged;
+        size = merged.length;
+        positions = null;
+        return addedAt;
+    }
+
+    /**
+     * Takes an entry out of the order, e.g. before its sort key changes. Catalog indices stay as they are.
+     * @param index catalog index of the entry
+     * @return the position the entry has been shown at, -1 if it has been filtered out
+     */
+    public int hide(int index) {
+        checkWritable();
+        int position = positionOf(index);
+        if (position >= 0) {
+            System.arraycopy(entries, position + 1, entries, position, size - position - 1);
+            size--;
+            positions = null;
+        }
+        return position;
+    }
+
+    /**
+     * Puts an entry that has been hidden back into the order, at the position of its current sort key
+     * @param index catalog index of the entry
+     * @return position of the entry, -1 if it doesn't pass the filter
+     */
+    public int insert(int index) {
+        checkWritable();
+        if (!filter.matches(catalog, index)) {
+            return -1;
+        }
+        // Binary search for the first entry that comes after the new one, keys are never equal
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(entries[middle], index) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(16, size + (size >> 1)));
+        }
+        System.arraycopy(entries, low, entries, low + 1, size - low);
+        entries[low] = index;
+        size++;
+        positions = null;
+        return low;
+    }
+
+    /**
+     * Updates the order after an entry has been removed from the catalog, all following
+     * catalog indices have moved one forward. The entry has to be taken out of the order by hide
+     * before it is removed from the catalog, its position can't be told afterwards.
+     * @param index former catalog index of the removed entry
+     */
+    public void removed(int index) {
+        checkWritable();
+        for (int i = 0; i < size; i++) {
+            if (entries[i] > index) {
+                entries[i]--;
+            }
+        }
+        positions = null;
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("A snapshot of the order can't be changed");
+        }
+    }
+
+    /**
+     * Filters and sorts all entries of the catalog
+     */
+    private void rebuild() {
+        int[] rebuilt = new int[catalog.size()];
+        int count = 0;
+        for (int i = 0; i < catalog.size(); i++) {
+            if (filter.matches(catalog, i)) {
+                rebuilt[count++] = i;
+            }
+        }
+        sort(rebuilt, count);
+        entries = rebuilt;
+        size = count;
+        positions = null;
+    }
+
+    /**
+     * Compares two entries by the sort key, equal keys by the catalog index, so no two entries are equal
+     */
+    private int compare(int a, int b) {
+        return compare(sortKey(a), a, sortKey(b), b);
+    }
+
+    /**
+     * Compares two entries by their keys from sortKey, which are already reversed for a descending order
+     */
+    private int compare(long keyA, int a, long keyB, int b) {
+        if (keyA != keyB) {
+            return keyA < keyB ? -1 : 1;
+        }
+        int result = sortMode.compareEqualKeys(catalog, a, b);
+        if (result != 0) {
+            return descending ? -result : result;
+        }
+        return Integer.compare(a, b);
+    }
+
+    /**
+     * @return key of an entry, inverted for a descending order (~ reverses the order of all longs, unlike -)
+     */
+    private long sortKey(int index) {
+        long key = sortMode.key(catalog, index);
+        return descending ? ~key : key;
+    }
+
+    /**
+     * Merge sort of the first count catalog indices, the Arrays methods only sort int arrays by value.
+     * The keys are read from the catalog once and sorted along with the indices, so comparing two entries
+     * only reads neighbouring array elements instead of jumping through the catalog.
+     */
+    private void sort(int[] indices, int count) {
+        if (sortMode == SortMode.LOADED) {
+            // Entries are collected in catalog order already
+            if (descending) {
+                for (int i = 0, j = count - 1; i < j; i++, j--) {
+                    int swap = indices[i];
+                    indices[i] = indices[j];
+                    indices[j] = swap;
+                }
+            }
+            return;
+        }
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = sortKey(indices[i]);
+        }
+        mergeSort(keys.clone(), Arrays.copyOf(indices, count), keys, indices, 0, count);
+    }
+
+    /**
+     * Sorts the range of the target arrays, the source arrays hold the same values and are used as scratch space
+     */
+    private void mergeSort(long[] sourceKeys, int[] source, long[] targetKeys, int[] target, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                long key = targetKeys[i];
+                int value = target[i];
+                int j = i - 1;
+                while (j >= from && compare(targetKeys[j], target[j], key, value) > 0) {
+                    targetKeys[j + 1] = targetKeys[j];
+                    target[j + 1] = target[j];
+                    j--;
+                }
+                targetKeys[j + 1] = key;
+                target[j + 1] = value;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        // Both halves are sorted into source, then merged back into target
+        mergeSort(targetKeys, target, sourceKeys, source, from, middle);
+        mergeSort(targetKeys, target, sourceKeys, source, middle, to);
+        if (compare(sourceKeys[middle - 1], source[middle - 1], sourceKeys[middle], source[middle]) < 0) {
+            System.arraycopy(sourceKeys, from, targetKeys, from, to - from);
+            System.arraycopy(source, from, target, from, to - from);
+            return;
+        }
+        for (int k = from, a = from, b = middle; k < to; k++) {
+            if (b == to || (a < middle && compare(sourceKeys[a], source[a], sourceKeys[b], source[b]) < 0)) {
+                targetKeys[k] = sourceKeys[a];
+                target[k] = source[a++];
+            } else {
+                targetKeys[k] = sourceKeys[b];
+                target[k] = source[b++];
+            }
+        }
+    }
+    //------ End Methods ------//
+}
@@ -1,12 +1,77 @@
 package de.thm.tlf.photoViewer.data;
 
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import de.thm.tlf.photoViewer.io.ImageFileReader;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /**
  * Wrapper of class Picture that's used for handling the preview of pictures
  * -> Used to distinguish between pictures and preview
  */
 public class PicturePreview extends Picture{
+    /** Maximum width and height in pixels that previews are decoded to */
+    public static final int THUMBNAIL_SIZE = 150;
+
+    private final ThumbnailCache thumbnailCache;
 
     public PicturePreview(String fileRef) {
-        super(fileRef);
+        this(fileRef, null);
+    }
+
+    public PicturePreview(String fileRef, ThumbnailCache thumbnailCache) {
+        this(fileRef, thumbnailCache, null);
+    }
+
+    /**
+     * @param fileRef path of the picture file
+     * @param thumbnailCache persistent store for the scaled previews, may be null
+     * @param previewCache memory cache for the decoded previews, may be null to keep the preview in this object
+     */
+    public PicturePreview(String fileRef, ThumbnailCache thumbnailCache, ImageCache previewCache) {
+        super(fileRef, previewCache);
+        this.thumbnailCache = thumbnailCache;
+    }
+
+    /**
+     * Creates the handle of a preview whose file metadata is already known, e.g. from a PictureCatalog
+     * @param fileRef path of the picture file
+     * @param fileSize size of the file in bytes
+     * @param lastModified time of the last modification of the file
+     * @param thumbnailCache persistent store for the scaled previews, may be null
+     * @param previewCache memory cache for the decoded previews, may be null to keep the preview in this object
+     */
+    public PicturePreview(String fileRef, long fileSize, long lastModified,
+                          ThumbnailCache thumbnailCache, ImageCache previewCache) {
+        super(fileRef, fileSize, lastModified, previewCache, 0, 0);
+        this.thumbnailCache = thumbnailCache;
+    }
+
+    /**
+     * Previews are decoded straight to THUMBNAIL_SIZE (keeping the aspect ratio) so a preview
+     * only costs a few kilobytes. Decoding is synchronous, previews are meant to be decoded
+     * off the JavaFX application thread (see PreviewCell).
+     * If a thumbnail cache is set, a stored thumbnail is used instead of the original file
+     * and newly decoded thumbnails are added to it.
+     * @return result holding the decoded preview Image or the reason why it could not be decoded
+     */
+    @Override
+    protected DecodeResult decode() {
+        if (thumbnailCache != null) {
+            Path cached = thumbnailCache.lookup(this);
+            if (cached != null) {
+                DecodeResult result = ImageFileReader.decode(cached);
+                if (result.isOk()) {
+                    return result;
+                }
+                // A damaged cache entry is replaced by decoding the original again
+            }
+        }
+        DecodeResult thumbnail = ImageFileReader.decode(Paths.get(getFileRef()), THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+        if (thumbnailCache != null && thumbnail.isOk()) {
+            thumbnailCache.store(this, thumbnail.getImage());
+        }
+        return thumbnail;
     }
 }
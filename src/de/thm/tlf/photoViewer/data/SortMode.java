@@ -0,0 +1,82 @@
+package de.thm.tlf.photoViewer.data;
+
+/**
+ * Orders in which the entries of a PictureCatalog can be shown (see PictureOrder).
+ * All of them read the catalog columns directly, no handles are created and nothing is decoded.
+ * Every entry is reduced to a numeric key, which decides the order of most entries on its own,
+ * only entries with equal keys are compared in detail.
+ */
+public enum SortMode {
+    /** Order in which the pictures have been loaded */
+    LOADED("Loaded order") {
+        @Override
+        long key(PictureCatalog catalog, int index) {
+            return index;
+        }
+    },
+    /** File name, ignoring case */
+    NAME("Name") {
+        @Override
+        long key(PictureCatalog catalog, int index) {
+            // Flipping the sign bit makes the signed comparison of keys order the prefixes unsigned
+            return catalog.getNamePrefix(index) ^ Long.MIN_VALUE;
+        }
+
+        @Override
+        int compareEqualKeys(PictureCatalog catalog, int a, int b) {
+            return catalog.compareNames(a, b);
+        }
+    },
+    /** Time the picture was taken, the modification time of the file if it isn't known */
+    CAPTURE_DATE("Capture date") {
+        @Override
+        long key(PictureCatalog catalog, int index) {
+            return catalog.getDate(index);
+        }
+    },
+    /** Size of the file in bytes */
+    FILE_SIZE("File size") {
+        @Override
+        long key(PictureCatalog catalog, int index) {
+            return catalog.getFileSize(index);
+        }
+    },
+    /** Amount of pixels, pictures of unknown size come first */
+    DIMENSIONS("Dimensions") {
+        @Override
+        long key(PictureCatalog catalog, int index) {
+            return (long) catalog.getWidth(index) * catalog.getHeight(index);
+        }
+
+        @Override
+        int compareEqualKeys(PictureCatalog catalog, int a, int b) {
+            return Integer.compare(catalog.getWidth(a), catalog.getWidth(b));
+        }
+    };
+
+    private final String displayName;
+
+    SortMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @return sort key of an entry, a smaller key comes first
+     */
+    abstract long key(PictureCatalog catalog, int index);
+
+    /**
+     * Compares two entries whose keys are equal, entries that are still equal are left to the caller
+     * @return negative, zero or positive like a Comparator
+     */
+    int compareEqualKeys(PictureCatalog catalog, int a, int b) {
+        return 0;
+    }
+
+    /**
+     * @return name of the sort mode as shown to the user
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,299 @@
+package de.thm.tlf.photoViewer.data;
+
+import de.thm.tlf.photoViewer.concurrent.DaemonThreadFactory;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Persistent on-disk store for pre-scaled preview images.
+ * Entries are named "[hash of canonical path]-[file size]-[last modified].jpg", so a changed
+ * source file results in a new entry and the outdated ones of the same path are removed.
+ * The store is capped in size, the least recently used entries are pruned first.
+ * Writing, pruning and recording the access times happens on a single background thread,
+ * a lookup never writes to the disk. Failures only result in a cache miss.
+ */
+public class ThumbnailCache {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final String SUFFIX = ".jpg";
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    // Only accessed from the writer thread
+    private long bytesSincePrune = 0;
+
+    // Entries that have been looked up since the writer last recorded their access times
+    private final Set<Path> touched = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean touchScheduled = new AtomicBoolean();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            new DaemonThreadFactory("thumbnail-cache-writer"));
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param cacheDir directory the thumbnails are stored in, created if missing
+     * @param maxBytes maximum size of all stored thumbnails together
+     */
+    public ThumbnailCache(Path cacheDir, long maxBytes) {
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+        writer.execute(this::prune);
+    }
+
+    /**
+     * Creates a cache in the default location, which is "photoViewer.thumbnailCacheDir" if set,
+     * otherwise "$XDG_CACHE_HOME/photoviewer" or "~/.cache/photoviewer".
+     * The size cap is read from "photoViewer.thumbnailCacheBytes" and defaults to 256 MB.
+     * @return ThumbnailCache in the default location
+     */
+    public static ThumbnailCache createDefault() {
+        String dir = System.getProperty("photoViewer.thumbnailCacheDir");
+        return new ThumbnailCache(dir != null ? Paths.get(dir) : userCacheDir(),
+                Long.getLong("photoViewer.thumbnailCacheBytes", 256L * 1024 * 1024));
+    }
+
+    /**
+     * @return "$XDG_CACHE_HOME/photoviewer" if the variable is set, "~/.cache/photoviewer" otherwise
+     */
+    static Path userCacheDir() {
+        String xdgCache = System.getenv("XDG_CACHE_HOME");
+        return xdgCache != null && !xdgCache.isBlank()
+                ? Paths.get(xdgCache, "photoviewer")
+                : Paths.get(System.getProperty("user.home"), ".cache", "photoviewer");
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Looks up the stored thumbnail of a picture
+     * @param picture the picture whose thumbnail is requested
+     * @return the stored thumbnail file or null if there is none for the current version of the file
+     */
+    public Path lookup(Picture picture) {
+        Path entry = entryFor(picture);
+        if (entry == null || !Files.isRegularFile(entry)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        // Hits in quick succession, e.g. while scrolling the previews, are recorded by a single task
+        if (touched.add(entry) && touchScheduled.compareAndSet(false, true)) {
+            writer.execute(this::touchLookedUp);
+        }
+        return entry;
+    }
+
+    /**
+     * Stores a thumbnail in the background. Images that failed to load are ignored.
+     * @param picture the picture the thumbnail belongs to
+     * @param thumbnail the decoded thumbnail, as ImageFileReader returns it
+     */
+    public void store(Picture picture, Image thumbnail) {
+        writer.execute(() -> write(picture, thumbnail));
+    }
+
+    /**
+     * Waits until the thumbnails handed to store so far have been written and the lookups so far recorded,
+     * e.g. before the program exits
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        try {
+            // The writer works through its tasks in order, so all earlier writes are done once this one is
+            writer.submit(() -> {}).get();
+        } catch (ExecutionException e) {
+            // Can't happen, the task does nothing
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return directory the thumbnails are stored in
+     */
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Writes a loaded thumbnail as JPEG and removes the outdated entries of the same file
+     */
+    private void write(Picture picture, Image thumbnail) {
+        if (thumbnail.isError() || thumbnail.getWidth() <= 0) {
+            return;
+        }
+        Path entry = entryFor(picture);
+        if (entry == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheDir);
+            // JPEG can't store an alpha channel, so the thumbnail is drawn onto an RGB image
+            BufferedImage rgb = new BufferedImage((int) thumbnail.getWidth(), (int) thumbnail.getHeight(),
+                    BufferedImage.TYPE_INT_RGB);
+            rgb.createGraphics().drawImage(SwingFXUtils.fromFXImage(thumbnail, null), 0, 0, Color.WHITE, null);
+            Path tmp = Files.createTempFile(cacheDir, "thumb", ".tmp");
+            ImageIO.write(rgb, "jpg", tmp.toFile());
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+            removeOutdated(entry);
+            // Prune again once a tenth of the cap has been written since the last pruning
+            bytesSincePrune += Files.size(entry);
+            if (bytesSincePrune > maxBytes / 10) {
+                prune();
+            }
+        } catch (IOException | UncheckedIOException ignored) {
+            // A thumbnail that can't be written will simply be generated again next time
+        }
+    }
+
+    /**
+     * Sets the modification time of the entries looked up since the last call, it's the access time for the LRU pruning
+     */
+    private void touchLookedUp() {
+        // Cleared first, so an entry added while iterating is either seen here or schedules the next call
+        touchScheduled.set(false);
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        for (Iterator<Path> it = touched.iterator(); it.hasNext(); ) {
+            Path entry = it.next();
+            it.remove();
+            try {
+                Files.setLastModifiedTime(entry, now);
+            } catch (IOException ignored) {
+                // Pruned or replaced in the meantime, only affects the pruning order anyway
+            }
+        }
+    }
+
+    /**
+     * Removes every entry that belongs to the same file as the given entry but to an older version of it
+     */
+    private void removeOutdated(Path entry) throws IOException {
+        String name = entry.getFileName().toString();
+        String pathHash = name.substring(0, name.indexOf('-'));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir, pathHash + "-*" + SUFFIX)) {
+            for (Path other : stream) {
+                if (!other.equals(entry)) {
+                    Files.deleteIfExists(other);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache is below its size cap
+     */
+    private void prune() {
+        bytesSincePrune = 0;
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        List<Path> entries = new ArrayList<>();
+        long totalBytes = 0;
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            for (Path p : (Iterable<Path>) stream::iterator) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // Left over from an interrupted write
+                    Files.deleteIfExists(p);
+                } else if (name.endsWith(SUFFIX)) {
+                    entries.add(p);
+                    totalBytes += Files.size(p);
+                }
+            }
+            if (totalBytes <= maxBytes) {
+                return;
+            }
+            entries.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+            for (Path p : entries) {
+                if (totalBytes <= maxBytes) {
+                    break;
+                }
+                long size = Files.size(p);
+                Files.deleteIfExists(p);
+                totalBytes -= size;
+            }
+        } catch (IOException | UncheckedIOException ignored) {
+            // Pruning is retried on the next start
+        }
+    }
+
+    /**
+     * Builds the entry path of a picture from its canonical path, file size and last modification time
+     * @return entry path or null if the canonical path can't be determined
+     */
+    private Path entryFor(Picture picture) {
+        try {
+            String canonical = new File(picture.getFileRef()).getCanonicalPath();
+            return cacheDir.resolve(hash(canonical) + "-" + picture.getFileSize() + "-"
+                    + picture.getLastModified() + SUFFIX);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return hex encoded SHA-1 hash of the given text
+     */
+    static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,110 @@
+package de.thm.tlf.photoViewer.io;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * ImageIO stream on a channel opened through NIO (Files.newByteChannel), so failures to open a file surface as
+ * the NIO exceptions (NoSuchFileException, AccessDeniedException) instead of the null ImageIO returns for a File.
+ * Seeks are passed on to the channel, nothing is cached apart from one buffer, so the readers can jump
+ * through large files. Closing the stream closes the channel.
+ */
+final class ChannelImageInputStream extends ImageInputStreamImpl {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private final SeekableByteChannel channel;
+    private final ByteBuffer buffer;
+    // Position in the channel of the first byte in the buffer
+    private long bufferStart = 0;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param channel the channel to read, positioned anywhere, the stream starts at its beginning
+     * @param bufferSize size of the read buffer in bytes
+     */
+    ChannelImageInputStream(SeekableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        buffer.limit(0);
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (!fill()) {
+            return -1;
+        }
+        streamPos++;
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        bitOffset = 0;
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        streamPos += n;
+        return n;
+    }
+
+    @Override
+    public long length() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        channel.close();
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Positions the buffer on the current stream position, reading from the channel if it isn't buffered
+     * @return false at the end of the channel
+     */
+    private boolean fill() throws IOException {
+        long offset = streamPos - bufferStart;
+        if (offset >= 0 && offset < buffer.limit()) {
+            buffer.position((int) offset);
+            return true;
+        }
+        buffer.clear();
+        channel.position(streamPos);
+        int n;
+        do {
+            n = channel.read(buffer);
+        } while (n == 0);
+        buffer.flip();
+        bufferStart = streamPos;
+        return n > 0;
+    }
+}
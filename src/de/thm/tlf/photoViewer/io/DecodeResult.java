@@ -0,0 +1,80 @@
+package de.thm.tlf.photoViewer.io;
+
+import javafx.scene.image.Image;
+
+/**
+ * Result of decoding an image file.
+ * Either holds the decoded image or the reason why it could not be decoded.
+ */
+public final class DecodeResult {
+    /**
+     * Possible outcomes of a decode
+     */
+    public enum Status {
+        /** The image has been decoded */
+        OK,
+        /** The file does not exist (anymore) */
+        NOT_FOUND,
+        /** The file exists but could not be read */
+        UNREADABLE,
+        /** The file could be read but is not a supported or valid image */
+        CORRUPT
+    }
+
+    private final Status status;
+    private final Image image;
+    private final String message;
+
+    private DecodeResult(Status status, Image image, String message) {
+        this.status = status;
+        this.image = image;
+        this.message = message;
+    }
+
+    /**
+     * @param image the decoded image
+     * @return successful result
+     */
+    public static DecodeResult ok(Image image) {
+        return new DecodeResult(Status.OK, image, null);
+    }
+
+    /**
+     * @param status reason of the failure, must not be OK
+     * @param message description of the failure
+     * @return failed result
+     */
+    public static DecodeResult failed(Status status, String message) {
+        if (status == Status.OK) {
+            throw new IllegalArgumentException("A failed result needs a failure status");
+        }
+        return new DecodeResult(status, null, message);
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the decoded image or null if decoding failed
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * @return description of the failure or null if decoding succeeded
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return isOk() ? "OK" : status + ": " + message;
+    }
+}
@@ -0,0 +1,375 @@
+package de.thm.tlf.photoViewer.io;
+
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Decodes the frames of a GIF file one after the other, composing each of them onto the previous ones
+ * as the disposal methods of the frames demand.
+ * Unlike a JavaFX Image, which decodes all frames of an animation up front and keeps them, only the canvas
+ * the frames are composed on (and a copy of it for frames that restore the previous state) is kept.
+ * Composed frames are scaled down to fit into the requested size.
+ * The file is opened on the first decode and stays open until suspend or close, suspending keeps the
+ * canvas, so decoding continues with the next frame after reopening the file.
+ * Not thread safe, an instance is meant to be used by a single decoding thread.
+ */
+public class GifDecoder implements AutoCloseable {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final String IMAGE_METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+    private static final String STREAM_METADATA_FORMAT = "javax_imageio_gif_stream_1.0";
+    // Browsers show frames with a shorter delay for 100 ms, as they were meant to be by many encoders
+    private static final int MIN_DELAY_MILLIS = 20;
+    private static final int DEFAULT_DELAY_MILLIS = 100;
+    // Larger logical screens are taken for broken files rather than allocating a canvas for them
+    private static final long MAX_CANVAS_PIXELS = 8192L * 8192;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Path file;
+    private final double maxWidth;
+    private final double maxHeight;
+
+    private ImageInputStream in;
+    private ImageReader reader;
+
+    private BufferedImage canvas;
+    private BufferedImage previousCanvas;
+    private int nextFrame = 0;
+    private int frameCount = -1;
+    // How the last composed frame has to be removed before the next one is drawn
+    private String lastDisposal = "none";
+    private int lastX, lastY, lastWidth, lastHeight;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * @param file the GIF file
+     * @param maxWidth maximum width of the composed frames, 0 for the original width
+     * @param maxHeight maximum height of the composed frames, 0 for the original height
+     */
+    public GifDecoder(Path file, double maxWidth, double maxHeight) {
+        this.file = file;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Checks whether a GIF file holds more than one frame, only the first frame is skipped for this
+     * @param file the GIF file
+     * @return true if the file is an animation, false if it has a single frame or can't be read
+     */
+    public static boolean isAnimated(Path file) {
+        try (GifDecoder decoder = new GifDecoder(file, 0, 0)) {
+            decoder.open();
+            decoder.reader.getWidth(1);
+            return true;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Composes the next frame, after the last one the animation starts over with the first one
+     * @return the composed frame
+     * @throws IOException if the file can't be read or its first frame is broken
+     */
+    public Frame next() throws IOException {
+        open();
+        if (canvas == null) {
+            createCanvas();
+        }
+        BufferedImage frame = null;
+        IIOMetadata metadata = null;
+        if (frameCount < 0 || nextFrame < frameCount) {
+            try {
+                frame = reader.read(nextFrame);
+                metadata = reader.getImageMetadata(nextFrame);
+            } catch (IndexOutOfBoundsException | IIOException e) {
+                // Past the last frame, a broken frame ends the animation as well
+                if (nextFrame == 0) {
+                    throw e instanceof IIOException ? (IIOException) e
+                            : new IIOException("No frame in " + file);
+                }
+                frameCount = nextFrame;
+            }
+        }
+        if (frame == null) {
+            restart();
+            frame = reader.read(0);
+            metadata = reader.getImageMetadata(0);
+        }
+        int index = nextFrame++;
+        int delay = compose(frame, metadata);
+        return new Frame(index, toImage(canvas), delay, frameCount);
+    }
+
+    /**
+     * @return amount of frames, -1 until the end of the file has been reached once
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return position in the open file, i.e. how many bytes have been read so far, 0 if it isn't open
+     */
+    public long getPosition() {
+        try {
+            return in != null ? in.getStreamPosition() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Closes the file while the animation isn't needed, the next decode reopens it
+     */
+    public void suspend() {
+        if (reader != null) {
+            reader.dispose();
+            reader = null;
+        }
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // Nothing has been written, so nothing can be lost
+            }
+            in = null;
+        }
+    }
+
+    /**
+     * Closes the file and drops the canvas
+     */
+    @Override
+    public void close() {
+        suspend();
+        canvas = null;
+        previousCanvas = null;
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Opens the file if it isn't open
+     */
+    private void open() throws IOException {
+        if (reader != null) {
+            return;
+        }
+        // Throws NoSuchFileException or AccessDeniedException if the file is gone or can't be read
+        SeekableByteChannel channel = Files.newByteChannel(file);
+        in = new ChannelImageInputStream(channel, BUFFER_SIZE);
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
+        if (!readers.hasNext()) {
+            suspend();
+            throw new IIOException("No GIF decoder available");
+        }
+        reader = readers.next();
+        // Random access, frames are located again after reopening and when starting over
+        reader.setInput(in, false, false);
+    }
+
+    /**
+     * Creates the canvas in the size of the logical screen of the file
+     */
+    private void createCanvas() throws IOException {
+        Node screen = child(reader.getStreamMetadata().getAsTree(STREAM_METADATA_FORMAT), "LogicalScreenDescriptor");
+        int width = intAttribute(screen, "logicalScreenWidth", 0);
+        int height = intAttribute(screen, "logicalScreenHeight", 0);
+        if (width <= 0 || height <= 0) {
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+        }
+        if ((long) width * height > MAX_CANVAS_PIXELS) {
+            throw new IIOException("Logical screen of " + width + "x" + height + " pixels is too large");
+        }
+        canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Clears the canvas before the animation starts over
+     */
+    private void restart() {
+        nextFrame = 0;
+        lastDisposal = "none";
+        clear(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    /**
+     * Removes the last frame as its disposal method demands and draws the new one on top
+     * @return delay of the new frame in milliseconds
+     */
+    private int compose(BufferedImage frame, IIOMetadata metadata) {
+        Node tree = metadata.getAsTree(IMAGE_METADATA_FORMAT);
+        Node descriptor = child(tree, "ImageDescriptor");
+        Node control = child(tree, "GraphicControlExtension");
+
+        switch (lastDisposal) {
+            case "restoreToBackgroundColor":
+                // Like browsers, the background is transparent instead of the background color
+                clear(lastX, lastY, lastWidth, lastHeight);
+                break;
+            case "restoreToPrevious":
+                if (previousCanvas != null) {
+                    canvas.setData(previousCanvas.getRaster());
+                }
+                break;
+            default:
+                // The frame stays and the next one is drawn over it
+        }
+
+        lastDisposal = control != null ? stringAttribute(control, "disposalMethod", "none") : "none";
+        lastX = intAttribute(descriptor, "imageLeftPosition", 0);
+        lastY = intAttribute(descriptor, "imageTopPosition", 0);
+        lastWidth = frame.getWidth();
+        lastHeight = frame.getHeight();
+        if (lastDisposal.equals("restoreToPrevious")) {
+            previousCanvas = copy(canvas, previousCanvas);
+        }
+
+        Graphics2D g = canvas.createGraphics();
+        g.drawImage(frame, lastX, lastY, null);
+        g.dispose();
+
+        int delay = control != null ? intAttribute(control, "delayTime", 0) * 10 : 0;
+        return delay < MIN_DELAY_MILLIS ? DEFAULT_DELAY_MILLIS : delay;
+    }
+
+    /**
+     * Converts the canvas into a new JavaFX image, scaled down to the requested size
+     */
+    private Image toImage(BufferedImage source) {
+        double scale = 1;
+        if (maxWidth > 0) {
+            scale = Math.min(scale, maxWidth / source.getWidth());
+        }
+        if (maxHeight > 0) {
+            scale = Math.min(scale, maxHeight / source.getHeight());
+        }
+        if (scale >= 1) {
+            return SwingFXUtils.toFXImage(source, null);
+        }
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return SwingFXUtils.toFXImage(scaled, null);
+    }
+
+    private void clear(int x, int y, int width, int height) {
+        Graphics2D g = canvas.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(x, y, width, height);
+        g.dispose();
+    }
+
+    private static BufferedImage copy(BufferedImage source, BufferedImage target) {
+        if (target == null || target.getWidth() != source.getWidth() || target.getHeight() != source.getHeight()) {
+            target = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        }
+        target.setData(source.getRaster());
+        return target;
+    }
+
+    private static Node child(Node parent, String name) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals(name)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static String stringAttribute(Node node, String name, String fallback) {
+        if (node == null) {
+            return fallback;
+        }
+        NamedNodeMap attributes = node.getAttributes();
+        Node attribute = attributes != null ? attributes.getNamedItem(name) : null;
+        return attribute != null ? attribute.getNodeValue() : fallback;
+    }
+
+    private static int intAttribute(Node node, String name, int fallback) {
+        try {
+            return Integer.parseInt(stringAttribute(node, name, Integer.toString(fallback)));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * A composed frame of an animation
+     */
+    public static final class Frame {
+        private final int index;
+        private final Image image;
+        private final int delayMillis;
+        private final int frameCount;
+
+        private Frame(int index, Image image, int delayMillis, int frameCount) {
+            this.index = index;
+            this.image = image;
+            this.delayMillis = delayMillis;
+            this.frameCount = frameCount;
+        }
+
+        /**
+         * @return position of the frame in the animation, starting at 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the frame composed with all frames before it
+         */
+        public Image getImage() {
+            return image;
+        }
+
+        /**
+         * @return time the frame is shown in milliseconds
+         */
+        public int getDelayMillis() {
+            return delayMillis;
+        }
+
+        /**
+         * @return amount of frames of the animation, -1 until the end has been reached once
+         */
+        public int getFrameCount() {
+            return frameCount;
+        }
+    }
+}
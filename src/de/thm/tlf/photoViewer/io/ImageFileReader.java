@@ -0,0 +1,288 @@
+package de.thm.tlf.photoViewer.io;
+
+import de.thm.tlf.photoViewer.metrics.ViewerMetrics;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.geometry.Dimension2D;
+import javafx.scene.image.Image;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decodes image files into JavaFX images.
+ * Every file is opened through NIO and closed again before the decode method returns,
+ * so no file descriptors are held however many pictures are loaded.
+ * Failures are reported as DecodeResult instead of being thrown.
+ * The latency and the bytes read of every decode are recorded in the ViewerMetrics.
+ */
+public final class ImageFileReader {
+    /** File extensions of the supported image formats, lower case */
+    public static final List<String> SUPPORTED_EXTENSIONS = List.of("png", "jpg", "gif");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Prevent creation of instances, only static methods
+     */
+    private ImageFileReader() {}
+
+    /**
+     * @param file the file to check
+     * @return true if the file name has the extension of a supported image format
+     */
+    public static boolean isSupported(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && SUPPORTED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Decodes an image file in its full resolution
+     * @param file the image file
+     * @return result holding the image or the reason of the failure
+     */
+    public static DecodeResult decode(Path file) {
+        return decode(file, 0, 0);
+    }
+
+    /**
+     * Decodes an image file scaled down to fit into the requested size, keeping the aspect ratio.
+     * Images that already fit are decoded in their original size, they are never scaled up.
+     * The EXIF orientation of the file is applied, the image is returned upright.
+     * Of an animated GIF only the first frame is decoded, the animation is played by a GifDecoder.
+     * @param file the image file
+     * @param maxWidth maximum width of the decoded image, 0 for the original width
+     * @param maxHeight maximum height of the decoded image, 0 for the original height
+     * @return result holding the image or the reason of the failure
+     */
+    public static DecodeResult decode(Path file, double maxWidth, double maxHeight) {
+        if (isGif(file)) {
+            return decodeFirstFrame(file, maxWidth, maxHeight);
+        }
+        long start = System.nanoTime();
+        CountingInputStream counter = null;
+        DecodeResult result;
+        PictureMetadata metadata = MetadataReader.read(file);
+        int orientation = metadata != null ? metadata.getOrientation() : 0;
+        if (metadata != null && metadata.swapsAxes()) {
+            // The bounds apply to the upright picture, the decoder works on the stored one
+            double swap = maxWidth;
+            maxWidth = maxHeight;
+            maxHeight = swap;
+        }
+        if (metadata != null && metadata.getWidth() > 0 && (maxWidth <= 0 || metadata.getWidth() <= maxWidth)
+                && (maxHeight <= 0 || metadata.getHeight() <= maxHeight)) {
+            // JavaFX would scale small images up to the requested size
+            maxWidth = 0;
+            maxHeight = 0;
+        }
+        try (InputStream in = new BufferedInputStream(
+                counter = new CountingInputStream(Files.newInputStream(file)), BUFFER_SIZE)) {
+            result = toResult(new Image(in, maxWidth, maxHeight, true, true));
+            if (result.isOk() && orientation > 1) {
+                result = DecodeResult.ok(ImageOrientation.apply(result.getImage(), orientation));
+            }
+        } catch (NoSuchFileException e) {
+            result = DecodeResult.failed(DecodeResult.Status.NOT_FOUND, "File not found: " + file);
+        } catch (AccessDeniedException e) {
+            result = DecodeResult.failed(DecodeResult.Status.UNREADABLE, "Access denied: " + file);
+        } catch (IOException e) {
+            result = DecodeResult.failed(DecodeResult.Status.UNREADABLE, "Could not read " + file + ": " + e.getMessage());
+        }
+        ViewerMetrics.getInstance().recordDecode(file, System.nanoTime() - start,
+                counter != null ? counter.count : 0, result.isOk());
+        return result;
+    }
+
+    /**
+     * Decodes the first frame of a GIF file. A JavaFX Image would decode all frames of an animation
+     * and keep them in memory, however many there are.
+     */
+    private static DecodeResult decodeFirstFrame(Path file, double maxWidth, double maxHeight) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        DecodeResult result;
+        try (GifDecoder decoder = new GifDecoder(file, maxWidth, maxHeight)) {
+            try {
+                result = DecodeResult.ok(decoder.next().getImage());
+            } finally {
+                bytes = decoder.getPosition();
+            }
+        } catch (NoSuchFileException e) {
+            result = DecodeResult.failed(DecodeResult.Status.NOT_FOUND, "File not found: " + file);
+        } catch (AccessDeniedException e) {
+            result = DecodeResult.failed(DecodeResult.Status.UNREADABLE, "Access denied: " + file);
+        } catch (IIOException e) {
+            result = DecodeResult.failed(DecodeResult.Status.CORRUPT, "Could not decode " + file + ": " + e.getMessage());
+        } catch (IOException e) {
+            result = DecodeResult.failed(DecodeResult.Status.UNREADABLE, "Could not read " + file + ": " + e.getMessage());
+        }
+        ViewerMetrics.getInstance().recordDecode(file, System.nanoTime() - start, bytes, result.isOk());
+        return result;
+    }
+
+    /**
+     * @param file the file to check
+     * @return true if the file name has the extension of a GIF file
+     */
+    public static boolean isGif(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gif");
+    }
+
+    /**
+     * Decodes a rectangular part of an image file in its full resolution, without decoding the rest of it
+     * (as far as the format allows, JPEG rows below the region are skipped entirely).
+     * Region and result are in the orientation the pixels are stored in, see ImageOrientation.
+     * @param file the image file
+     * @param x left edge of the region in pixels of the original image
+     * @param y top edge of the region in pixels of the original image
+     * @param width width of the region
+     * @param height height of the region
+     * @return result holding the image of the region or the reason of the failure
+     */
+    public static DecodeResult decodeRegion(Path file, int x, int y, int width, int height) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        DecodeResult result;
+        try (SeekableByteChannel channel = Files.newByteChannel(file);
+             ImageInputStream in = new ChannelImageInputStream(channel, BUFFER_SIZE)) {
+            ImageReader reader = readerFor(in);
+            if (reader == null) {
+                result = DecodeResult.failed(DecodeResult.Status.CORRUPT, "Unsupported image format: " + file);
+            } else {
+                try {
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceRegion(new Rectangle(x, y, width, height));
+                    BufferedImage region = reader.read(0, param);
+                    result = DecodeResult.ok(SwingFXUtils.toFXImage(region, null));
+                } finally {
+                    // Rows below the region are never read, so the position is what has been read
+                    bytes = in.getStreamPosition();
+                    reader.dispose();
+                }
+            }
+        } catch (NoSuchFileException e) {
+            result = DecodeResult.failed(DecodeResult.Status.NOT_FOUND, "File not found: " + file);
+        } catch (AccessDeniedException e) {
+            result = DecodeResult.failed(DecodeResult.Status.UNREADABLE, "Access denied: " + file);
+        } catch (IIOException e) {
+            result = DecodeResult.failed(DecodeResult.Status.CORRUPT, "Could not decode " + file + ": " + e.getMessage());
+        } catch (IOException e) {
+            result = DecodeResult.failed(DecodeResult.Status.UNREADABLE, "Could not read " + file + ": " + e.getMessage());
+        }
+        ViewerMetrics.getInstance().recordDecode(file, System.nanoTime() - start, bytes, result.isOk());
+        return result;
+    }
+
+    /**
+     * Reads the size of an image from its header, without decoding any pixels.
+     * This is the size as stored, before applying the orientation.
+     * @param file the image file
+     * @return width and height of the image or null if they could not be read
+     */
+    public static Dimension2D readDimensions(Path file) {
+        try (SeekableByteChannel channel = Files.newByteChannel(file);
+             ImageInputStream in = new ChannelImageInputStream(channel, BUFFER_SIZE)) {
+            ImageReader reader = readerFor(in);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                return new Dimension2D(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes an image that is bundled with the program
+     * @param owner class used to resolve the resource
+     * @param resourceName name of the resource, see Class.getResourceAsStream
+     * @return result holding the image or the reason of the failure
+     */
+    public static DecodeResult decodeResource(Class<?> owner, String resourceName) {
+        try (InputStream in = owner.getResourceAsStream(resourceName)) {
+            if (in == null) {
+                return DecodeResult.failed(DecodeResult.Status.NOT_FOUND, "Resource not found: " + resourceName);
+            }
+            return toResult(new Image(in));
+        } catch (IOException e) {
+            return DecodeResult.failed(DecodeResult.Status.UNREADABLE,
+                    "Could not read resource " + resourceName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return ImageIO reader attached to the stream or null if the format isn't supported
+     */
+    private static ImageReader readerFor(ImageInputStream in) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(in, true, true);
+        return reader;
+    }
+
+    /**
+     * Stream that counts the bytes read through it
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Checks whether JavaFX could make sense of the data it has been given
+     */
+    private static DecodeResult toResult(Image image) {
+        if (image.isError()) {
+            Exception cause = image.getException();
+            return DecodeResult.failed(DecodeResult.Status.CORRUPT,
+                    cause != null ? cause.getMessage() : "Unsupported image format");
+        }
+        return DecodeResult.ok(image);
+    }
+}
@@ -0,0 +1,110 @@
+package de.thm.tlf.photoViewer.io;
+
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Encodes JavaFX images into image files, the counterpart of ImageFileReader.
+ * The file is written through NIO and closed again before the write method returns.
+ */
+public final class ImageFileWriter {
+    /**
+     * Formats images can be written in
+     */
+    public enum Format {
+        /** Lossy, without transparency, the quality trades file size for artifacts */
+        JPEG("jpg"),
+        /** Lossless, the quality trades file size for encoding time */
+        PNG("png");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return file extension of the format, lower case and without the dot
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Prevent creation of instances, only static methods
+     */
+    private ImageFileWriter() {}
+
+    /**
+     * Encodes an image into a file, an existing file is overwritten
+     * @param image the image, has to be loaded completely
+     * @param file the file to write
+     * @param format the format to encode in, independent of the extension of the file
+     * @param quality between 0 and 1, for JPEG the image quality, for PNG 1 is the fastest
+     *                and 0 the strongest compression
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Image image, Path file, Format format, float quality) throws IOException {
+        BufferedImage pixels = SwingFXUtils.fromFXImage(image, null);
+        if (format == Format.JPEG) {
+            pixels = withoutAlpha(pixels);
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format.name());
+        if (!writers.hasNext()) {
+            throw new IOException("No " + format + " encoder available");
+        }
+        ImageWriter writer = writers.next();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+             // Buffered in memory, ImageIO would otherwise buffer in a temporary file
+             ImageOutputStream imageOut = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(Math.max(0, Math.min(1, quality)));
+            }
+            writer.write(null, new IIOImage(pixels, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * JPEG has no alpha channel, transparent pixels are put on a white background
+     */
+    private static BufferedImage withoutAlpha(BufferedImage source) {
+        if (!source.getColorModel().hasAlpha()) {
+            return source;
+        }
+        BufferedImage opaque = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = opaque.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, source.getWidth(), source.getHeight());
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return opaque;
+    }
+}
@@ -0,0 +1,118 @@
+package de.thm.tlf.photoViewer.io;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Applies EXIF orientations, which describe how the stored pixels have to be transformed to be displayed upright:
+ * 1 as stored, 2 mirrored horizontally, 3 rotated by 180°, 4 mirrored vertically, 5 transposed,
+ * 6 rotated 90° clockwise, 7 transversed, 8 rotated 90° counterclockwise. 0 (unknown) is treated like 1.
+ */
+public final class ImageOrientation {
+    /**
+     * Prevent creation of instances, only static methods
+     */
+    private ImageOrientation() {}
+
+    /**
+     * Transforms the pixels of an image so it is displayed upright
+     * @param image the decoded image as stored in the file, has to be loaded completely
+     * @param orientation EXIF orientation of the file
+     * @return the upright image, the given one if nothing has to be changed
+     */
+    public static Image apply(Image image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        PixelReader reader = image.getPixelReader();
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        if (reader == null || width <= 0 || height <= 0) {
+            return image;
+        }
+        int[] stored = new int[width * height];
+        reader.getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), stored, 0, width);
+        boolean swap = orientation >= 5;
+        int displayWidth = swap ? height : width;
+        int displayHeight = swap ? width : height;
+        int[] upright = new int[stored.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int dx;
+                int dy;
+                switch (orientation) {
+                    case 2: dx = width - 1 - x; dy = y; break;
+                    case 3: dx = width - 1 - x; dy = height - 1 - y; break;
+                    case 4: dx = x; dy = height - 1 - y; break;
+                    case 5: dx = y; dy = x; break;
+                    case 6: dx = height - 1 - y; dy = x; break;
+                    case 7: dx = height - 1 - y; dy = width - 1 - x; break;
+                    default: dx = y; dy = width - 1 - x; break;
+                }
+                upright[dy * displayWidth + dx] = stored[y * width + x];
+            }
+        }
+        WritableImage result = new WritableImage(displayWidth, displayHeight);
+        result.getPixelWriter().setPixels(0, 0, displayWidth, displayHeight,
+                PixelFormat.getIntArgbInstance(), upright, 0, displayWidth);
+        return result;
+    }
+
+    /**
+     * Maps a rectangle of the stored picture to where it is displayed
+     * @param stored rectangle in coordinates of the stored picture
+     * @param width width of the stored picture
+     * @param height height of the stored picture
+     * @param orientation EXIF orientation of the file
+     * @return the rectangle in coordinates of the upright picture
+     */
+    public static Rectangle2D toDisplayed(Rectangle2D stored, double width, double height, int orientation) {
+        return map(stored, width, height, orientation);
+    }
+
+    /**
+     * Maps a rectangle of the upright picture back to the stored one
+     * @param displayed rectangle in coordinates of the upright picture
+     * @param width width of the stored picture
+     * @param height height of the stored picture
+     * @param orientation EXIF orientation of the file
+     * @return the rectangle in coordinates of the stored picture
+     */
+    public static Rectangle2D toStored(Rectangle2D displayed, double width, double height, int orientation) {
+        boolean swap = orientation >= 5 && orientation <= 8;
+        // Only the two rotations are not their own inverse
+        int inverse = orientation == 6 ? 8 : orientation == 8 ? 6 : orientation;
+        return map(displayed, swap ? height : width, swap ? width : height, inverse);
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Transforms the corners of the rectangle, width and height are the ones of the source coordinate system
+     */
+    private static Rectangle2D map(Rectangle2D r, double width, double height, int orientation) {
+        double x1 = r.getMinX();
+        double y1 = r.getMinY();
+        double x2 = r.getMaxX();
+        double y2 = r.getMaxY();
+        switch (orientation) {
+            case 2: return rect(width - x1, y1, width - x2, y2);
+            case 3: return rect(width - x1, height - y1, width - x2, height - y2);
+            case 4: return rect(x1, height - y1, x2, height - y2);
+            case 5: return rect(y1, x1, y2, x2);
+            case 6: return rect(height - y1, x1, height - y2, x2);
+            case 7: return rect(height - y1, width - x1, height - y2, width - x2);
+            case 8: return rect(y1, width - x1, y2, width - x2);
+            default: return r;
+        }
+    }
+
+    private static Rectangle2D rect(double ax, double ay, double bx, double by) {
+        return new Rectangle2D(Math.min(ax, bx), Math.min(ay, by), Math.abs(bx - ax), Math.abs(by - ay));
+    }
+}
@@ -0,0 +1,307 @@
+package de.thm.tlf.photoViewer.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads the PictureMetadata of JPEG, PNG and GIF files from their headers, without decoding any pixels.
+ * The format is recognized by the content, not by the file extension.
+ * JPEG segments that don't matter are skipped by seeking, so usually only the first few kilobytes are read:
+ * dimensions come from the SOF segment, orientation and capture time from the EXIF data of the APP1 segment.
+ * PNG files are read up to the first image data (IHDR and an optional eXIf chunk), GIF files only
+ * up to the logical screen descriptor.
+ */
+public final class MetadataReader {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    // An EXIF segment is at most 64 KB, larger ones are broken
+    private static final int MAX_EXIF_BYTES = 0xffff;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+    private static final int TAG_DATE_TIME = 0x0132;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+
+    private static final DateTimeFormatter EXIF_DATE_TIME = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    /**
+     * Prevent creation of instances, only static methods
+     */
+    private MetadataReader() {}
+
+    /**
+     * Reads the metadata of an image file
+     * @param file the image file
+     * @return metadata of the file or null if it can't be read or isn't a JPEG, PNG or GIF file
+     */
+    public static PictureMetadata read(Path file) {
+        try (HeaderInput in = new HeaderInput(Files.newByteChannel(file))) {
+            int first = in.readU8();
+            int second = in.readU8();
+            if (first == 0xff && second == 0xd8) {
+                return readJpeg(in);
+            } else if (first == 0x89 && second == 'P') {
+                return readPng(in);
+            } else if (first == 'G' && second == 'I') {
+                return readGif(in);
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * Walks the segments of a JPEG file (after the SOI marker) until the frame header
+     */
+    private static PictureMetadata readJpeg(HeaderInput in) throws IOException {
+        Exif exif = null;
+        while (true) {
+            int marker = in.readU8();
+            if (marker != 0xff) {
+                return null;
+            }
+            // Any number of 0xff may precede the marker code
+            while (marker == 0xff) {
+                marker = in.readU8();
+            }
+            if (marker == 0xd9 || marker == 0xda) {
+                // End of image or start of scan without a frame header
+                return null;
+            }
+            if (marker == 0x01 || (marker >= 0xd0 && marker <= 0xd7)) {
+                // Markers without a segment
+                continue;
+            }
+            int length = in.readU16(ByteOrder.BIG_ENDIAN) - 2;
+            if (length < 0) {
+                return null;
+            }
+            if (isStartOfFrame(marker)) {
+                in.skip(1); // sample precision
+                int height = in.readU16(ByteOrder.BIG_ENDIAN);
+                int width = in.readU16(ByteOrder.BIG_ENDIAN);
+                return exif != null
+                        ? new PictureMetadata(width, height, exif.orientation, exif.captureTime)
+                        : new PictureMetadata(width, height, 0, 0);
+            }
+            if (marker == 0xe1 && exif == null && length > 6) {
+                byte[] segment = in.readBytes(length);
+                if (segment[0] == 'E' && segment[1] == 'x' && segment[2] == 'i' && segment[3] == 'f'
+                        && segment[4] == 0 && segment[5] == 0) {
+                    exif = parseExif(ByteBuffer.wrap(segment, 6, segment.length - 6).slice());
+                }
+            } else {
+                in.skip(length);
+            }
+        }
+    }
+
+    /**
+     * @return true for the SOF markers of all coding processes (not DHT, JPG and DAC which share the range)
+     */
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xc0 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc;
+    }
+
+    /**
+     * Reads IHDR and an eXIf chunk if it comes before the image data
+     */
+    private static PictureMetadata readPng(HeaderInput in) throws IOException {
+        in.skip(6); // rest of the signature
+        int width = 0;
+        int height = 0;
+        while (true) {
+            long length = in.readU32(ByteOrder.BIG_ENDIAN);
+            String type = new String(in.readBytes(4), StandardCharsets.US_ASCII);
+            if (type.equals("IHDR")) {
+                width = (int) in.readU32(ByteOrder.BIG_ENDIAN);
+                height = (int) in.readU32(ByteOrder.BIG_ENDIAN);
+                in.skip(length - 8 + 4); // rest of the chunk and CRC
+            } else if (type.equals("eXIf") && length <= MAX_EXIF_BYTES && width > 0) {
+                Exif exif = parseExif(ByteBuffer.wrap(in.readBytes((int) length)));
+                return new PictureMetadata(width, height, exif.orientation, exif.captureTime);
+            } else if (type.equals("IDAT") || type.equals("IEND")) {
+                return width > 0 ? new PictureMetadata(width, height, 0, 0) : null;
+            } else {
+                in.skip(length + 4);
+            }
+        }
+    }
+
+    /**
+     * Reads the logical screen size, GIF files have neither orientation nor capture time
+     */
+    private static PictureMetadata readGif(HeaderInput in) throws IOException {
+        in.skip(4); // rest of "GIF87a" or "GIF89a"
+        int width = in.readU16(ByteOrder.LITTLE_ENDIAN);
+        int height = in.readU16(ByteOrder.LITTLE_ENDIAN);
+        return new PictureMetadata(width, height, 0, 0);
+    }
+
+    /**
+     * Parses a TIFF structure holding EXIF data, broken data results in unknown values
+     * @param tiff the TIFF structure, starting with the byte order mark
+     */
+    private static Exif parseExif(ByteBuffer tiff) {
+        Exif exif = new Exif();
+        try {
+            tiff.order(tiff.getShort(0) == 0x4949 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            int ifd0 = tiff.getInt(4);
+            String dateTime = null;
+            String dateTimeOriginal = null;
+            int exifIfd = -1;
+            int count = tiff.getShort(ifd0) & 0xffff;
+            for (int i = 0; i < count; i++) {
+                int entry = ifd0 + 2 + i * 12;
+                int tag = tiff.getShort(entry) & 0xffff;
+                if (tag == TAG_ORIENTATION) {
+                    int orientation = tiff.getShort(entry + 8) & 0xffff;
+                    exif.orientation = orientation >= 1 && orientation <= 8 ? orientation : 0;
+                } else if (tag == TAG_DATE_TIME) {
+                    dateTime = readAscii(tiff, entry);
+                } else if (tag == TAG_EXIF_IFD) {
+                    exifIfd = tiff.getInt(entry + 8);
+                }
+            }
+            if (exifIfd > 0) {
+                count = tiff.getShort(exifIfd) & 0xffff;
+                for (int i = 0; i < count; i++) {
+                    int entry = exifIfd + 2 + i * 12;
+                    if ((tiff.getShort(entry) & 0xffff) == TAG_DATE_TIME_ORIGINAL) {
+                        dateTimeOriginal = readAscii(tiff, entry);
+                    }
+                }
+            }
+            exif.captureTime = parseDateTime(dateTimeOriginal != null ? dateTimeOriginal : dateTime);
+        } catch (IndexOutOfBoundsException ignored) {
+            // Whatever has been read up to the broken part is kept
+        }
+        return exif;
+    }
+
+    /**
+     * @return value of an ASCII entry of an IFD, stored inline if it has at most 4 bytes, null if it's broken
+     */
+    private static String readAscii(ByteBuffer tiff, int entry) {
+        int length = tiff.getInt(entry + 4);
+        if (length < 0 || length > tiff.limit()) {
+            return null;
+        }
+        int offset = length <= 4 ? entry + 8 : tiff.getInt(entry + 8);
+        byte[] value = new byte[length];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = tiff.get(offset + i);
+        }
+        return new String(value, StandardCharsets.US_ASCII).trim();
+    }
+
+    /**
+     * @return EXIF date in the local time zone as milliseconds since the epoch, 0 if it can't be parsed
+     */
+    private static long parseDateTime(String value) {
+        if (value == null || value.length() < 19) {
+            return 0;
+        }
+        try {
+            return LocalDateTime.parse(value.substring(0, 19), EXIF_DATE_TIME)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // Cameras without a set clock write "0000:00:00 00:00:00"
+            return 0;
+        }
+    }
+
+    /**
+     * Values found in the EXIF data
+     */
+    private static final class Exif {
+        private int orientation = 0;
+        private long captureTime = 0;
+    }
+
+    /**
+     * Buffered reader on a file channel that skips by changing the position instead of reading
+     */
+    private static final class HeaderInput implements AutoCloseable {
+        private final SeekableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private HeaderInput(SeekableByteChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        private int readU8() throws IOException {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            return buffer.get() & 0xff;
+        }
+
+        private int readU16(ByteOrder order) throws IOException {
+            int a = readU8();
+            int b = readU8();
+            return order == ByteOrder.BIG_ENDIAN ? (a << 8) | b : (b << 8) | a;
+        }
+
+        private long readU32(ByteOrder order) throws IOException {
+            long a = readU16(order);
+            long b = readU16(order);
+            return order == ByteOrder.BIG_ENDIAN ? (a << 16) | b : (b << 16) | a;
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, 0, read);
+            ByteBuffer rest = ByteBuffer.wrap(bytes, read, length - read);
+            while (rest.hasRemaining()) {
+                if (channel.read(rest) < 0) {
+                    throw new EOFException();
+                }
+            }
+            return bytes;
+        }
+
+        private void skip(long length) throws IOException {
+            if (length <= buffer.remaining()) {
+                buffer.position(buffer.position() + (int) length);
+                return;
+            }
+            long behindBuffer = length - buffer.remaining();
+            buffer.limit(0);
+            channel.position(channel.position() + behindBuffer);
+        }
+
+        private void fill() throws IOException {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
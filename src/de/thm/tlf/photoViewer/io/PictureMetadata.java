@@ -0,0 +1,77 @@
+package de.thm.tlf.photoViewer.io;
+
+/**
+ * Metadata of a picture file that can be known without decoding its pixels.
+ * Unknown values are 0.
+ */
+public class PictureMetadata {
+    /** Metadata of a file nothing is known about */
+    public static final PictureMetadata UNKNOWN = new PictureMetadata(0, 0, 0, 0);
+
+    private final int width;
+    private final int height;
+    private final int orientation;
+    private final long captureTime;
+
+    /**
+     * @param width width of the stored picture in pixels
+     * @param height height of the stored picture in pixels
+     * @param orientation EXIF orientation (1 to 8), 0 if unknown
+     * @param captureTime time the picture was taken in milliseconds since the epoch, 0 if unknown
+     */
+    public PictureMetadata(int width, int height, int orientation, long captureTime) {
+        this.width = width;
+        this.height = height;
+        this.orientation = orientation;
+        this.captureTime = captureTime;
+    }
+
+    /**
+     * @return width of the stored picture in pixels, before applying the orientation
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return height of the stored picture in pixels, before applying the orientation
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return EXIF orientation (1 to 8), 0 if unknown
+     */
+    public int getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * @return time the picture was taken in milliseconds since the epoch, 0 if unknown
+     */
+    public long getCaptureTime() {
+        return captureTime;
+    }
+
+    /**
+     * @return true if the picture is displayed rotated by 90 degrees, so width and height swap
+     */
+    public boolean swapsAxes() {
+        return orientation >= 5 && orientation <= 8;
+    }
+
+    /**
+     * @return width of the picture as it is displayed, after applying the orientation
+     */
+    public int getDisplayWidth() {
+        return swapsAxes() ? height : width;
+    }
+
+    /**
+     * @return height of the picture as it is displayed, after applying the orientation
+     */
+    public int getDisplayHeight() {
+        return swapsAxes() ? width : height;
+    }
+}
@@ -0,0 +1,87 @@
+package de.thm.tlf.photoViewer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of latencies with exponentially growing buckets.
+ * Bucket i holds the latencies from 2^(i-1) up to 2^i microseconds, which keeps the
+ * relative error of the reported percentiles below a factor of two at constant memory.
+ * Recording never blocks, so it can be used on the JavaFX application thread.
+ */
+public class LatencyHistogram {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    // 2^40 microseconds are about 12 days, everything above ends up in the last bucket
+    private static final int BUCKET_COUNT = 41;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Adds a single measurement
+     * @param nanos measured latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos) / 1000;
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the current state of the histogram, measurements recorded meanwhile may be missing partially
+     */
+    public LatencySummary summarize() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        double mean = total > 0 ? totalNanos.get() / 1e6 / total : 0;
+        return new LatencySummary(total, mean, percentile(counts, total, 0.5), percentile(counts, total, 0.95),
+                percentile(counts, total, 0.99), maxNanos.get() / 1e6);
+    }
+
+    /**
+     * Drops all measurements
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * @return upper bound of the bucket holding the given percentile, in milliseconds
+     */
+    private static double percentile(long[] counts, long total, double fraction) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << i) / 1000.0;
+            }
+        }
+        return (1L << (counts.length - 1)) / 1000.0;
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,71 @@
+package de.thm.tlf.photoViewer.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.Locale;
+
+/**
+ * Immutable summary of a LatencyHistogram, all latencies in milliseconds.
+ * Percentiles are the upper bound of the bucket they fall into.
+ * Exposed through JMX as composite data.
+ */
+public class LatencySummary {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    @ConstructorProperties({"count", "meanMillis", "p50Millis", "p95Millis", "p99Millis", "maxMillis"})
+    public LatencySummary(long count, double meanMillis, double p50Millis, double p95Millis,
+                          double p99Millis, double maxMillis) {
+        this.count = count;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP95Millis() {
+        return p95Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "count=%d mean=%.1fms p50<=%.1fms p95<=%.1fms p99<=%.1fms max=%.1fms",
+                count, meanMillis, p50Millis, p95Millis, p99Millis, maxMillis);
+    }
+    //------ End Methods ------//
+}
@@ -0,0 +1,271 @@
+package de.thm.tlf.photoViewer.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects runtime metrics of the viewer: decode latencies, bytes read, cache hit rates,
+ * queue depths of the background loaders, the time from a key press until the picture is displayed
+ * and the time the viewer took to show its first frame.
+ * Caches and queues register suppliers for their counters, which are only read when the metrics are.
+ * Implemented using singleton pattern, all methods are thread safe.
+ * The metrics are published through JMX by register and logged by logSummary.
+ */
+public final class ViewerMetrics implements ViewerMetricsMXBean {
+    ////////////////////////////
+    //------ Attributes ------//
+    ////////////////////////////
+    private static final String OBJECT_NAME = "de.thm.tlf.photoViewer:type=ViewerMetrics";
+    private static final int SLOWEST_DECODES = 10;
+    private static final Logger LOG = Logger.getLogger(ViewerMetrics.class.getName());
+
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> decodeLatencyByFormat = new ConcurrentHashMap<>();
+    // Ordered by latency, the fastest of the slowest decodes first so it can be replaced
+    private final PriorityQueue<SlowDecode> slowestDecodes =
+            new PriorityQueue<>(Comparator.comparingLong(d -> d.nanos));
+    private final AtomicLong failedDecodes = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final LatencyHistogram keyToDisplayLatency = new LatencyHistogram();
+    private final AtomicLong timeToFirstFrame = new AtomicLong(-1);
+
+    private final Map<String, LongSupplier[]> caches = new ConcurrentHashMap<>();
+    private final Map<String, IntSupplier> queues = new ConcurrentHashMap<>();
+
+    private static final ViewerMetrics INSTANCE = new ViewerMetrics();
+
+    //////////////////////////////
+    //------ Constructors ------//
+    //////////////////////////////
+
+    /**
+     * Prevent creation of new instances
+     */
+    private ViewerMetrics() {}
+
+    /**
+     * Singleton-Pattern method to acquire the only instance
+     * @return ViewerMetrics instance
+     */
+    public static ViewerMetrics getInstance() {return INSTANCE;}
+
+    /////////////////////////
+    //------ Methods ------//
+    /////////////////////////
+
+    /**
+     * Publishes the metrics in the platform MBean server, calling it again has no effect
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Could not register the viewer metrics", e);
+        }
+    }
+
+    /**
+     * Writes the summary of all metrics to the log
+     */
+    public void logSummary() {
+        LOG.info(dump());
+    }
+
+    /**
+     * Records a single decode of an image file
+     * @param file the decoded file
+     * @param nanos time the decode took
+     * @param bytes bytes read from the file
+     * @param ok false if the decode failed
+     */
+    public void recordDecode(Path file, long nanos, long bytes, boolean ok) {
+        decodeLatency.record(nanos);
+        decodeLatencyByFormat.computeIfAbsent(formatOf(file), f -> new LatencyHistogram()).record(nanos);
+        bytesRead.addAndGet(bytes);
+        if (!ok) {
+            failedDecodes.incrementAndGet();
+        }
+        synchronized (slowestDecodes) {
+            if (slowestDecodes.size() < SLOWEST_DECODES) {
+                slowestDecodes.add(new SlowDecode(file.toString(), nanos));
+            } else if (slowestDecodes.peek().nanos < nanos) {
+                slowestDecodes.poll();
+                slowestDecodes.add(new SlowDecode(file.toString(), nanos));
+            }
+        }
+    }
+
+    /**
+     * Records the time from a navigation key press until the picture has been displayed
+     * @param nanos the measured time
+     */
+    public void recordKeyToDisplay(long nanos) {
+        keyToDisplayLatency.record(nanos);
+    }
+
+    /**
+     * Records when the viewer's window has shown its first frame, only the first call counts
+     * @param shownAt System.currentTimeMillis of the first frame
+     */
+    public void recordFirstFrame(long shownAt) {
+        long millis = shownAt - ManagementFactory.getRuntimeMXBean().getStartTime();
+        if (timeToFirstFrame.compareAndSet(-1, millis)) {
+            LOG.info("First frame shown " + millis + "ms after the start of the JVM");
+        }
+    }
+
+    /**
+     * Adds a cache to the reported hit rates
+     * @param name name the cache is reported with
+     * @param hits supplies the amount of hits so far
+     * @param misses supplies the amount of misses so far
+     */
+    public void registerCache(String name, LongSupplier hits, LongSupplier misses) {
+        caches.put(name, new LongSupplier[] {hits, misses});
+    }
+
+    /**
+     * Adds a background queue to the reported queue depths
+     * @param name name the queue is reported with
+     * @param depth supplies the amount of tasks currently waiting
+     */
+    public void registerQueue(String name, IntSupplier depth) {
+        queues.put(name, depth);
+    }
+
+    @Override
+    public LatencySummary getDecodeLatency() {
+        return decodeLatency.summarize();
+    }
+
+    @Override
+    public Map<String, LatencySummary> getDecodeLatencyByFormat() {
+        Map<String, LatencySummary> result = new TreeMap<>();
+        decodeLatencyByFormat.forEach((format, histogram) -> result.put(format, histogram.summarize()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getSlowestDecodes() {
+        List<SlowDecode> decodes;
+        synchronized (slowestDecodes) {
+            decodes = new ArrayList<>(slowestDecodes);
+        }
+        decodes.sort(Comparator.comparingLong((SlowDecode d) -> d.nanos).reversed());
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (SlowDecode d : decodes) {
+            result.merge(d.file, d.nanos / 1e6, Math::max);
+        }
+        return result;
+    }
+
+    @Override
+    public long getFailedDecodes() {
+        return failedDecodes.get();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public Map<String, Double> getCacheHitRates() {
+        Map<String, Double> result = new TreeMap<>();
+        caches.forEach((name, counters) -> {
+            long hits = counters[0].getAsLong();
+            long total = hits + counters[1].getAsLong();
+            result.put(name, total > 0 ? (double) hits / total : 0);
+        });
+        return result;
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> result = new TreeMap<>();
+        queues.forEach((name, depth) -> result.put(name, depth.getAsInt()));
+        return result;
+    }
+
+    @Override
+    public LatencySummary getKeyToDisplayLatency() {
+        return keyToDisplayLatency.summarize();
+    }
+
+    @Override
+    public long getTimeToFirstFrame() {
+        return timeToFirstFrame.get();
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder sb = new StringBuilder("Photo viewer metrics");
+        sb.append("\n  decode: ").append(getDecodeLatency()).append(", failed=").append(getFailedDecodes());
+        getDecodeLatencyByFormat().forEach((format, summary) ->
+                sb.append("\n  decode ").append(format).append(": ").append(summary));
+        getSlowestDecodes().forEach((file, millis) ->
+                sb.append(String.format(Locale.ROOT, "\n  slow decode: %.1fms %s", millis, file)));
+        sb.append("\n  bytes read: ").append(getBytesRead());
+        getCacheHitRates().forEach((name, rate) ->
+                sb.append(String.format(Locale.ROOT, "\n  %s cache hit rate: %.3f", name, rate)));
+        getQueueDepths().forEach((name, depth) ->
+                sb.append("\n  ").append(name).append(" queue depth: ").append(depth));
+        sb.append("\n  key to display: ").append(getKeyToDisplayLatency());
+        sb.append("\n  time to first frame: ").append(getTimeToFirstFrame()).append("ms");
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        decodeLatency.reset();
+        decodeLatencyByFormat.clear();
+        synchronized (slowestDecodes) {
+            slowestDecodes.clear();
+        }
+        failedDecodes.set(0);
+        bytesRead.set(0);
+        keyToDisplayLatency.reset();
+    }
+
+    ////////////////////////////////
+    //------ Helper-Methods ------//
+    ////////////////////////////////
+
+    /**
+     * @return lower case file extension, or an empty string if there is none
+     */
+    private static String formatOf(Path file) {
+        Path name = file.getFileName();
+        String s = name != null ? name.toString() : "";
+        int dot = s.lastIndexOf('.');
+        return dot >= 0 ? s.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * A decode that is among the slowest ones so far
+     */
+    private static final class SlowDecode {
+        private final String file;
+        private final long nanos;
+
+        private SlowDecode(String file, long nanos) {
+            this.file = file;
+            this.nanos = nanos;
+        }
+    }
+    //------ End Methods ------//
+}
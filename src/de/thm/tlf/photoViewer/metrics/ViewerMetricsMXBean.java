@@ -0,0 +1,65 @@
+package de.thm.tlf.photoViewer.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the ViewerMetrics, registered as
+ * "de.thm.tlf.photoViewer:type=ViewerMetrics" in the platform MBean server.
+ * All latencies are in milliseconds.
+ */
+public interface ViewerMetricsMXBean {
+    /**
+     * @return latency of all decodes, full pictures, previews and tiles
+     */
+    LatencySummary getDecodeLatency();
+
+    /**
+     * @return decode latency per file format (file extension)
+     */
+    Map<String, LatencySummary> getDecodeLatencyByFormat();
+
+    /**
+     * @return the files that took longest to decode, with their latency
+     */
+    Map<String, Double> getSlowestDecodes();
+
+    /**
+     * @return amount of decodes that failed
+     */
+    long getFailedDecodes();
+
+    /**
+     * @return bytes read from image files by the decoder
+     */
+    long getBytesRead();
+
+    /**
+     * @return hit rate (0 to 1) of every cache
+     */
+    Map<String, Double> getCacheHitRates();
+
+    /**
+     * @return amount of tasks waiting in every background queue
+     */
+    Map<String, Integer> getQueueDepths();
+
+    /**
+     * @return time from a navigation key press until the picture has been laid out in the viewer
+     */
+    LatencySummary getKeyToDisplayLatency();
+
+    /**
+     * @return time from the start of the JVM until the window has shown its first frame, -1 until it has
+     */
+    long getTimeToFirstFrame();
+
+    /**
+     * @return human readable summary of all metrics
+     */
+    String dump();
+
+    /**
+     * Drops all recorded measurements, cache counters, queues and the time to the first frame are not affected
+     */
+    void reset();
+}
@@ -0,0 +1,77 @@
+package de.thm.tlf.photoViewer;
+
+import de.thm.tlf.photoViewer.data.SortMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Removing pictures keeps catalog, order and cursor consistent. The files don't have to exist,
+ * nothing is decoded.
+ */
+class PictureHandlerTest {
+    private final PictureHandler handler = PictureHandler.getInstance();
+
+    @BeforeEach
+    void setUp() {
+        List<File> files = new ArrayList<>();
+        for (String name : List.of("c.jpg", "a.jpg", "e.jpg", "b.jpg", "d.jpg")) {
+            files.add(new File("/pics/" + name));
+        }
+        handler.loadPictures(files);
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.setSortMode(SortMode.LOADED, false);
+        handler.clear();
+    }
+
+    @Test
+    void removesLastLoadedPicture() {
+        handler.removePicture(new File("/pics/d.jpg").getPath());
+
+        assertEquals(4, handler.getPictureCount());
+        assertEquals(-1, handler.indexOf(new File("/pics/d.jpg").getPath()));
+        assertEquals(3, handler.indexOf(new File("/pics/b.jpg").getPath()));
+    }
+
+    @Test
+    void removesCurrentPictureOfSortedOrder() throws NoPicturesLoadedException {
+        handler.setSortMode(SortMode.NAME, false);
+        handler.getPictureByRef(new File("/pics/c.jpg").getPath());
+        handler.removePicture(new File("/pics/c.jpg").getPath());
+
+        assertEquals(4, handler.getPictureCount());
+        // The cursor moves to the picture before, so next continues with the one after the removed one
+        assertEquals(new File("/pics/b.jpg").getPath(), handler.getCurrentPicture().getFileRef());
+        assertEquals(new File("/pics/d.jpg").getPath(), handler.getNextPicture().getFileRef());
+    }
+
+    @Test
+    void looksUpPictureByIDWithoutMoving() throws NoPicturesLoadedException {
+        handler.setSortMode(SortMode.NAME, false);
+
+        assertEquals(new File("/pics/b.jpg").getPath(), handler.getPictureByID(1).getFileRef());
+        assertEquals(-1, handler.getCurrentPictureID());
+        assertThrows(IndexOutOfBoundsException.class, () -> handler.getPictureByID(5));
+    }
+
+    @Test
+    void removesAllPictures() {
+        for (String name : List.of("a.jpg", "b.jpg", "c.jpg", "d.jpg", "e.jpg")) {
+            handler.removePicture(new File("/pics/" + name).getPath());
+        }
+
+        assertEquals(0, handler.getPictureCount());
+        assertNull(handler.getCurrentPicture());
+    }
+}
@@ -0,0 +1,119 @@
+package de.thm.tlf.photoViewer.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateIndexTest {
+    private static final int MAX_DISTANCE = 10;
+
+    @Test
+    void groupsSimilarHashes() {
+        DuplicateIndex index = new DuplicateIndex(MAX_DISTANCE);
+        index.add(0, 0x0123456789abcdefL);
+        index.add(1, 0xfedcba9876543210L);
+        index.add(2, 0x0123456789abcdefL ^ 0x3ffL);
+        index.add(3, 0xfedcba9876543210L ^ 0x7ffL);
+
+        List<int[]> groups = index.getGroups();
+
+        assertEquals(1, groups.size());
+        assertArrayEquals(new int[] {0, 2}, groups.get(0));
+    }
+
+    @Test
+    void joinsGroupsThroughSimilarPictures() {
+        DuplicateIndex index = new DuplicateIndex(MAX_DISTANCE);
+        long hash = 0x0f0f0f0f0f0f0f0fL;
+        // 0 and 2 differ in 16 bits, but both are within 8 bits of 1
+        index.add(2, hash ^ 0xffff0000L);
+        index.add(0, hash);
+        index.add(1, hash ^ 0xff000000L);
+
+        assertEquals(1, index.getGroups().size());
+        assertArrayEquals(new int[] {0, 1, 2}, index.getGroups().get(0));
+    }
+
+    @Test
+    void rejectsIdAddedTwice() {
+        DuplicateIndex index = new DuplicateIndex(MAX_DISTANCE);
+        index.add(5, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> index.add(5, 2));
+    }
+
+    @Test
+    void findsTheSameGroupsAsComparingAllPairs() {
+        Random random = new Random(42);
+        long[] hashes = new long[3000];
+        for (int i = 0; i < hashes.length; i++) {
+            if (i > 0 && random.nextInt(4) == 0) {
+                // Near duplicate of an earlier picture, up to a few bits more than the distance apart
+                long flipped = 0;
+                for (int bit = random.nextInt(MAX_DISTANCE + 4); bit > 0; bit--) {
+                    flipped |= 1L << random.nextInt(64);
+                }
+                hashes[i] = hashes[random.nextInt(i)] ^ flipped;
+            } else {
+                hashes[i] = random.nextLong();
+            }
+        }
+        DuplicateIndex index = new DuplicateIndex(MAX_DISTANCE);
+        for (int i = 0; i < hashes.length; i++) {
+            index.add(i, hashes[i]);
+        }
+
+        List<int[]> expected = groupsOfAllPairs(hashes);
+        List<int[]> groups = index.getGroups();
+
+        assertTrue(expected.size() > 100);
+        assertEquals(expected.size(), groups.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), groups.get(i));
+        }
+        assertTrue(index.getComparisons() < (long) hashes.length * hashes.length / 2);
+    }
+
+    /**
+     * Groups the hashes by comparing every pair, ordered like DuplicateIndex.getGroups
+     */
+    private static List<int[]> groupsOfAllPairs(long[] hashes) {
+        int[] parent = new int[hashes.length];
+        Arrays.setAll(parent, i -> i);
+        for (int a = 0; a < hashes.length; a++) {
+            for (int b = a + 1; b < hashes.length; b++) {
+                if (Long.bitCount(hashes[a] ^ hashes[b]) <= MAX_DISTANCE) {
+                    parent[root(parent, a)] = root(parent, b);
+                }
+            }
+        }
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < hashes.length; i++) {
+            groups.computeIfAbsent(root(parent, i), key -> new ArrayList<>()).add(i);
+        }
+        List<int[]> result = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            if (group.size() > 1) {
+                result.add(group.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return result;
+    }
+
+    private static int root(int[] parent, int i) {
+        while (parent[i] != i) {
+            i = parent[i];
+        }
+        return i;
+    }
+}
@@ -0,0 +1,123 @@
+package de.thm.tlf.photoViewer.data;
+
+import de.thm.tlf.photoViewer.io.DecodeResult;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageCacheTest {
+    @Test
+    void decodesOnceAndServesFromCache() {
+        ImageCache cache = new ImageCache(1024 * 1024);
+        CountingPicture picture = new CountingPicture(cache, null);
+
+        Image first = picture.getImage();
+        Image second = picture.getImage();
+
+        assertSame(first, second);
+        assertEquals(1, picture.decodes.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        ImageCache cache = new ImageCache(2 * ImageCache.sizeOf(new WritableImage(8, 8)));
+        Picture a = new CountingPicture("/a.png", cache, null);
+        Picture b = new CountingPicture("/b.png", cache, null);
+        Picture c = new CountingPicture("/c.png", cache, null);
+
+        a.getImage();
+        b.getImage();
+        a.getImage();
+        c.getImage();
+
+        assertTrue(cache.contains(a));
+        assertFalse(cache.contains(b));
+        assertTrue(cache.contains(c));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void doesNotCacheDecodeThatWasInvalidated() throws Exception {
+        assertNotCachedAfter(ImageCache::invalidate);
+    }
+
+    @Test
+    void doesNotCacheDecodeThatWasCleared() throws Exception {
+        assertNotCachedAfter((cache, picture) -> cache.clear());
+    }
+
+    /**
+     * Changes the cache while a decode is running, the decoded image must not be cached afterwards
+     */
+    private static void assertNotCachedAfter(Change change) throws Exception {
+        ImageCache cache = new ImageCache(1024 * 1024);
+        CountDownLatch decoding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingPicture picture = new CountingPicture(cache, () -> {
+            decoding.countDown();
+            await(release);
+        });
+
+        CompletableFuture<Image> outdated = CompletableFuture.supplyAsync(picture::getImage);
+        assertTrue(decoding.await(5, TimeUnit.SECONDS));
+        change.apply(cache, picture);
+        release.countDown();
+
+        assertNotNull(outdated.get(5, TimeUnit.SECONDS));
+        assertFalse(cache.contains(picture));
+        picture.getImage();
+        assertEquals(2, picture.decodes.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Change {
+        void apply(ImageCache cache, Picture picture);
+    }
+
+    /**
+     * Picture that decodes to a blank image without reading a file, counting its decodes
+     */
+    private static final class CountingPicture extends Picture {
+        private final AtomicInteger decodes = new AtomicInteger();
+        private final Runnable whileDecoding;
+
+        private CountingPicture(ImageCache cache, Runnable whileDecoding) {
+            this("/picture.png", cache, whileDecoding);
+        }
+
+        private CountingPicture(String fileRef, ImageCache cache, Runnable whileDecoding) {
+            super(fileRef, cache);
+            this.whileDecoding = whileDecoding;
+        }
+
+        @Override
+        protected DecodeResult decode() {
+            decodes.incrementAndGet();
+            if (whileDecoding != null && decodes.get() == 1) {
+                whileDecoding.run();
+            }
+            return DecodeResult.ok(new WritableImage(8, 8));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package de.thm.tlf.photoViewer.data;
+
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LibraryIndexTest {
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void keepsMetadataAcrossStoreAndLoad() {
+        LibraryIndex index = new LibraryIndex(indexDir);
+        Path folder = Path.of("/pics");
+        index.store(folder, Map.of("a.jpg", new LibraryIndex.Entry(100, 2000,
+                new PictureMetadata(640, 480, 6, 1623760200000L))));
+
+        LibraryIndex.Entry entry = index.load(folder).get("a.jpg");
+
+        assertTrue(entry.matches(100, 2000));
+        PictureMetadata metadata = entry.getMetadata();
+        assertEquals(640, metadata.getWidth());
+        assertEquals(480, metadata.getHeight());
+        assertEquals(6, metadata.getOrientation());
+        assertEquals(1623760200000L, metadata.getCaptureTime());
+    }
+
+    @Test
+    void ignoresIndexFilesOfOlderVersions() throws IOException {
+        LibraryIndex index = new LibraryIndex(indexDir);
+        Path folder = Path.of("/pics");
+        index.store(folder, Map.of("a.jpg", new LibraryIndex.Entry(100, 2000, PictureMetadata.UNKNOWN)));
+        Path indexFile = indexFiles().get(0);
+        byte[] content = Files.readAllBytes(indexFile);
+        ByteBuffer.wrap(content).putInt(Integer.BYTES, 1);
+        Files.write(indexFile, content);
+
+        assertTrue(index.load(folder).isEmpty());
+    }
+
+    @Test
+    void dropsEntriesOfDeletedFilesOnCommit(@TempDir Path folder) throws IOException {
+        Path shown = Files.write(folder.resolve("a.jpg"), new byte[100]);
+        Files.write(folder.resolve("b.jpg"), new byte[100]);
+        long lastModified = Files.getLastModifiedTime(shown).toMillis();
+        LibraryIndex index = new LibraryIndex(indexDir);
+        LibraryIndex.Entry entry = new LibraryIndex.Entry(100, lastModified, PictureMetadata.UNKNOWN);
+        index.store(folder, Map.of("a.jpg", entry, "b.jpg", entry, "deleted.jpg", entry));
+
+        LibraryIndex.Session session = index.openSession();
+        session.metadataOf(shown, 100, lastModified);
+
+        assertEquals(1, session.getIndexedCount());
+        assertEquals(1, session.commit());
+        assertEquals(Set.of("a.jpg", "b.jpg"), index.load(folder).keySet());
+    }
+
+    private List<Path> indexFiles() throws IOException {
+        try (Stream<Path> files = Files.list(indexDir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package de.thm.tlf.photoViewer.data;
+
+import de.thm.tlf.photoViewer.io.PictureMetadata;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PictureCatalogTest {
+    @Test
+    void findsEntriesByPath() {
+        PictureCatalog catalog = new PictureCatalog();
+        for (int i = 0; i < 1000; i++) {
+            catalog.add("/d" + (i % 3) + "/picture" + i + ".jpg", i, i);
+        }
+
+        assertEquals(1000, catalog.size());
+        assertEquals(567, catalog.indexOf("/d0/picture567.jpg"));
+        assertEquals("/d0/picture567.jpg", catalog.getFileRef(567));
+        assertEquals(-1, catalog.indexOf("/d1/picture567.jpg"));
+        assertEquals(-1, catalog.indexOf("/other/picture567.jpg"));
+    }
+
+    @Test
+    void movesFollowingEntriesOnRemove() {
+        PictureCatalog catalog = new PictureCatalog();
+        catalog.add("/d/a.jpg", 1, 10);
+        catalog.add("/d/b.jpg", 2, 20);
+        catalog.add("/d/c.jpg", 3, 30);
+        catalog.setMetadata(2, new PictureMetadata(640, 480, 6, 1000));
+
+        catalog.remove(1);
+
+        assertEquals(2, catalog.size());
+        assertEquals("/d/c.jpg", catalog.getFileRef(1));
+        assertEquals(3, catalog.getFileSize(1));
+        assertEquals(6, catalog.getOrientation(1));
+        assertEquals(1, catalog.indexOf("/d/c.jpg"));
+        assertEquals(-1, catalog.indexOf("/d/b.jpg"));
+    }
+
+    @Test
+    void snapshotIsNotChangedByLaterChanges() {
+        PictureCatalog catalog = new PictureCatalog();
+        catalog.add("/d/a.jpg", 1, 10);
+        catalog.add("/d/b.jpg", 2, 20);
+        PictureCatalog snapshot = catalog.snapshot();
+
+        catalog.add("/d/c.jpg", 3, 30);
+        catalog.set(0, "/d/x.jpg", 4, 40);
+        catalog.setMetadata(1, new PictureMetadata(640, 480, 6, 1000));
+        catalog.remove(1);
+
+        assertEquals(2, snapshot.size());
+        assertEquals("/d/a.jpg", snapshot.getFileRef(0));
+        assertEquals(1, snapshot.getFileSize(0));
+        assertEquals(0, snapshot.getOrientation(1));
+        assertEquals(1, snapshot.indexOf("/d/b.jpg"));
+        assertEquals(-1, snapshot.indexOf("/d/c.jpg"));
+        assertTrue(snapshot.isReadOnly());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add("/d/y.jpg", 5, 50));
+    }
+
+    @Test
+    void snapshotIsNotChangedByCompactingNames() {
+        PictureCatalog catalog = new PictureCatalog();
+        catalog.add("/d/aaaaa.jpg", 1, 10);
+        catalog.add("/d/bbbbbbbb.jpg", 2, 20);
+        catalog.snapshot();
+        catalog.set(0, "/d/aaaaaaaaaaaa.jpg", 3, 30);
+        PictureCatalog snapshot = catalog.snapshot();
+        catalog.add("/d/" + "c".repeat(40) + ".jpg", 4, 40);
+
+        // Removing the long name leaves more garbage than names in the pool, which compacts it
+        catalog.remove(2);
+
+        assertEquals("/d/aaaaaaaaaaaa.jpg", snapshot.getFileRef(0));
+        assertEquals("/d/bbbbbbbb.jpg", snapshot.getFileRef(1));
+        assertEquals(1, snapshot.indexOf("/d/bbbbbbbb.jpg"));
+        assertEquals("/d/aaaaaaaaaaaa.jpg", catalog.getFileRef(0));
+        assertEquals("/d/bbbbbbbb.jpg", catalog.getFileRef(1));
+    }
+}
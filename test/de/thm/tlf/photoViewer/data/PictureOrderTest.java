@@ -0,0 +1,142 @@
+package de.thm.tlf.photoViewer.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Changes to a sorted and filtered order have to end up where sorting and filtering the catalog again would
+ */
+class PictureOrderTest {
+    private static final PictureFilter ONLY_JPG = PictureFilter.ALL.withExtensions(Set.of("jpg"));
+
+    private PictureCatalog catalog;
+    private PictureOrder order;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new PictureCatalog();
+        for (String name : List.of("c.jpg", "a.png", "e.jpg", "b.jpg", "d.jpg")) {
+            catalog.add("/pics/" + name, name.length(), 0);
+        }
+        order = new PictureOrder(catalog);
+        order.apply(SortMode.NAME, false, ONLY_JPG);
+    }
+
+    @Test
+    void sortsAndFilters() {
+        assertEquals(List.of("b.jpg", "c.jpg", "d.jpg", "e.jpg"), shown(order, catalog));
+    }
+
+    @Test
+    void removesShownEntry() {
+        int index = catalog.indexOf("/pics/c.jpg");
+        int position = order.hide(index);
+        catalog.remove(index);
+        order.removed(index);
+
+        assertEquals(1, position);
+        assertEquals(List.of("b.jpg", "d.jpg", "e.jpg"), shown(order, catalog));
+        assertEquals(shown(rebuilt(), catalog), shown(order, catalog));
+    }
+
+    @Test
+    void removesLastCatalogEntry() {
+        int index = catalog.size() - 1;
+        int position = order.hide(index);
+        catalog.remove(index);
+        order.removed(index);
+
+        assertEquals(2, position);
+        assertEquals(List.of("b.jpg", "c.jpg", "e.jpg"), shown(order, catalog));
+        assertEquals(-1, order.positionOf(catalog.size()));
+    }
+
+    @Test
+    void removesFilteredEntry() {
+        int index = catalog.indexOf("/pics/a.png");
+        int position = order.hide(index);
+        catalog.remove(index);
+        order.removed(index);
+
+        assertEquals(-1, position);
+        assertEquals(List.of("b.jpg", "c.jpg", "d.jpg", "e.jpg"), shown(order, catalog));
+        assertEquals(shown(rebuilt(), catalog), shown(order, catalog));
+    }
+
+    @Test
+    void movesReplacedEntry() {
+        int index = catalog.indexOf("/pics/b.jpg");
+        catalog.set(index, "/pics/f.jpg", 5, 0);
+        int oldPosition = order.hide(index);
+        int newPosition = order.insert(index);
+
+        assertEquals(0, oldPosition);
+        assertEquals(3, newPosition);
+        assertEquals(List.of("c.jpg", "d.jpg", "e.jpg", "f.jpg"), shown(order, catalog));
+    }
+
+    @Test
+    void hidesReplacedEntryThatIsFilteredOut() {
+        int index = catalog.indexOf("/pics/d.jpg");
+        catalog.set(index, "/pics/d.png", 5, 0);
+        order.hide(index);
+
+        assertEquals(-1, order.insert(index));
+        assertEquals(List.of("b.jpg", "c.jpg", "e.jpg"), shown(order, catalog));
+    }
+
+    @Test
+    void mergesAddedEntries() {
+        int from = catalog.size();
+        catalog.add("/pics/aa.jpg", 6, 0);
+        catalog.add("/pics/z.png", 5, 0);
+        catalog.add("/pics/cc.jpg", 6, 0);
+        int[] addedAt = order.added(from);
+
+        assertEquals(2, addedAt.length);
+        assertEquals(0, addedAt[0]);
+        assertEquals(3, addedAt[1]);
+        assertEquals(List.of("aa.jpg", "b.jpg", "c.jpg", "cc.jpg", "d.jpg", "e.jpg"), shown(order, catalog));
+        assertEquals(shown(rebuilt(), catalog), shown(order, catalog));
+    }
+
+    @Test
+    void snapshotKeepsOrderWhileChanged() {
+        PictureCatalog catalogSnapshot = catalog.snapshot();
+        PictureOrder snapshot = order.snapshot(catalogSnapshot);
+        int index = catalog.indexOf("/pics/b.jpg");
+        order.hide(index);
+        catalog.remove(index);
+        order.removed(index);
+
+        assertEquals(List.of("b.jpg", "c.jpg", "d.jpg", "e.jpg"), shown(snapshot, catalogSnapshot));
+        assertEquals(List.of("c.jpg", "d.jpg", "e.jpg"), shown(order, catalog));
+    }
+
+    /**
+     * @return a new order sorted and filtered like the tested one
+     */
+    private PictureOrder rebuilt() {
+        PictureOrder rebuilt = new PictureOrder(catalog);
+        rebuilt.apply(order.getSortMode(), order.isDescending(), order.getFilter());
+        return rebuilt;
+    }
+
+    /**
+     * @return file names of the shown entries, position by position
+     */
+    private static List<String> shown(PictureOrder order, PictureCatalog catalog) {
+        List<String> names = new ArrayList<>();
+        for (int position = 0; position < order.size(); position++) {
+            String fileRef = catalog.getFileRef(order.get(position));
+            names.add(fileRef.substring(fileRef.lastIndexOf('/') + 1));
+        }
+        return names;
+    }
+}
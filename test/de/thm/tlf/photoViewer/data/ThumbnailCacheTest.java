@@ -0,0 +1,40 @@
+package de.thm.tlf.photoViewer.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThumbnailCacheTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsAccessTimeOfLookupsInTheBackground() throws IOException, InterruptedException {
+        Path file = dir.resolve("picture.png");
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        ThumbnailCache cache = new ThumbnailCache(dir.resolve("cache"), 1024 * 1024);
+        PicturePreview preview = new PicturePreview(file.toString(), cache);
+
+        assertNull(cache.lookup(preview));
+        assertNotNull(preview.getImage());
+        cache.flush();
+        Path entry = cache.lookup(preview);
+        assertNotNull(entry);
+
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(0));
+        long before = System.currentTimeMillis() - 1000;
+        assertNotNull(cache.lookup(preview));
+        cache.flush();
+        assertTrue(Files.getLastModifiedTime(entry).toMillis() >= before);
+    }
+}
@@ -0,0 +1,62 @@
+package de.thm.tlf.photoViewer.io;
+
+import javafx.geometry.Dimension2D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImageFileReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void reportsMissingFile() {
+        Path missing = dir.resolve("missing.jpg");
+
+        assertEquals(DecodeResult.Status.NOT_FOUND, ImageFileReader.decode(missing).getStatus());
+        assertEquals(DecodeResult.Status.NOT_FOUND, ImageFileReader.decodeRegion(missing, 0, 0, 8, 8).getStatus());
+        assertEquals(DecodeResult.Status.NOT_FOUND, ImageFileReader.decode(dir.resolve("missing.gif")).getStatus());
+        assertNull(ImageFileReader.readDimensions(missing));
+    }
+
+    @Test
+    void reportsUnsupportedFormat() throws IOException {
+        Path text = Files.write(dir.resolve("text.png"), "not a picture".getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(DecodeResult.Status.CORRUPT, ImageFileReader.decodeRegion(text, 0, 0, 8, 8).getStatus());
+    }
+
+    @Test
+    void decodesRegion() throws IOException {
+        Path file = dir.resolve("picture.png");
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+
+        DecodeResult result = ImageFileReader.decodeRegion(file, 16, 8, 32, 24);
+
+        assertEquals(DecodeResult.Status.OK, result.getStatus());
+        assertEquals(32, result.getImage().getWidth());
+        assertEquals(24, result.getImage().getHeight());
+    }
+
+    @Test
+    void readsDimensionsAndGifFrame() throws IOException {
+        Path jpeg = dir.resolve("picture.jpg");
+        ImageIO.write(new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB), "jpg", jpeg.toFile());
+        Path gif = dir.resolve("picture.gif");
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_BYTE_INDEXED), "gif", gif.toFile());
+
+        assertEquals(new Dimension2D(120, 80), ImageFileReader.readDimensions(jpeg));
+        DecodeResult result = ImageFileReader.decode(gif);
+        assertEquals(DecodeResult.Status.OK, result.getStatus());
+        assertEquals(40, result.getImage().getWidth());
+    }
+}
@@ -0,0 +1,112 @@
+package de.thm.tlf.photoViewer.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The headers are written by hand, only the parts the reader looks at are filled in
+ */
+class MetadataReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsJpegWithExif() throws IOException {
+        byte[] tiff = exif(6, "2021:06:15 14:30:00");
+        ByteBuffer jpeg = ByteBuffer.allocate(2 + 4 + 6 + tiff.length + 4 + 6);
+        jpeg.putShort((short) 0xffd8);
+        jpeg.putShort((short) 0xffe1).putShort((short) (2 + 6 + tiff.length))
+                .put("Exif\0\0".getBytes(StandardCharsets.US_ASCII)).put(tiff);
+        jpeg.putShort((short) 0xffc0).putShort((short) 8).put((byte) 8).putShort((short) 480).putShort((short) 640)
+                .put((byte) 3);
+
+        PictureMetadata metadata = MetadataReader.read(write("exif.jpg", jpeg.array()));
+
+        assertEquals(640, metadata.getWidth());
+        assertEquals(480, metadata.getHeight());
+        assertEquals(6, metadata.getOrientation());
+        assertEquals(LocalDateTime.of(2021, 6, 15, 14, 30).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                metadata.getCaptureTime());
+        assertEquals(480, metadata.getDisplayWidth());
+    }
+
+    @Test
+    void readsJpegWithoutExif() throws IOException {
+        ByteBuffer jpeg = ByteBuffer.allocate(2 + 4 + 6);
+        jpeg.putShort((short) 0xffd8);
+        jpeg.putShort((short) 0xffc2).putShort((short) 8).put((byte) 8).putShort((short) 100).putShort((short) 200)
+                .put((byte) 3);
+
+        PictureMetadata metadata = MetadataReader.read(write("plain.jpg", jpeg.array()));
+
+        assertEquals(200, metadata.getWidth());
+        assertEquals(100, metadata.getHeight());
+        assertEquals(0, metadata.getOrientation());
+        assertEquals(0, metadata.getCaptureTime());
+    }
+
+    @Test
+    void readsPngHeader() throws IOException {
+        ByteBuffer png = ByteBuffer.allocate(8 + 8 + 13 + 4 + 8 + 4);
+        png.put(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+        png.putInt(13).put("IHDR".getBytes(StandardCharsets.US_ASCII)).putInt(320).putInt(240)
+                .put(new byte[] {8, 6, 0, 0, 0}).putInt(0);
+        png.putInt(0).put("IEND".getBytes(StandardCharsets.US_ASCII)).putInt(0);
+
+        PictureMetadata metadata = MetadataReader.read(write("header.png", png.array()));
+
+        assertEquals(320, metadata.getWidth());
+        assertEquals(240, metadata.getHeight());
+    }
+
+    @Test
+    void readsGifScreenSize() throws IOException {
+        byte[] gif = {'G', 'I', 'F', '8', '9', 'a', 0x2c, 0x01, (byte) 0xc8, 0x00};
+
+        PictureMetadata metadata = MetadataReader.read(write("screen.gif", gif));
+
+        assertEquals(300, metadata.getWidth());
+        assertEquals(200, metadata.getHeight());
+    }
+
+    @Test
+    void rejectsUnknownAndTruncatedFiles() throws IOException {
+        assertNull(MetadataReader.read(write("text.jpg", "not a picture".getBytes(StandardCharsets.US_ASCII))));
+        assertNull(MetadataReader.read(write("cut.jpg", new byte[] {(byte) 0xff, (byte) 0xd8, (byte) 0xff})));
+        assertNull(MetadataReader.read(dir.resolve("missing.jpg")));
+    }
+
+    /**
+     * @return big endian TIFF structure with the orientation in IFD0 and the capture time in the EXIF IFD
+     */
+    private static byte[] exif(int orientation, String dateTimeOriginal) {
+        ByteBuffer tiff = ByteBuffer.allocate(76);
+        tiff.putShort((short) 0x4d4d).putShort((short) 42).putInt(8);
+        // IFD0 at 8: orientation and the offset of the EXIF IFD
+        tiff.putShort((short) 2);
+        tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        tiff.putShort((short) 0x8769).putShort((short) 4).putInt(1).putInt(38);
+        tiff.putInt(0);
+        // EXIF IFD at 38, its value at 56
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 0x9003).putShort((short) 2).putInt(20).putInt(56);
+        tiff.putInt(0);
+        tiff.put((dateTimeOriginal + "\0").getBytes(StandardCharsets.US_ASCII));
+        return tiff.array();
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(dir.resolve(name), content);
+    }
+}